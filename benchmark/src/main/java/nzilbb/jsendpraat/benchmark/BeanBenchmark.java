@@ -0,0 +1,103 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for converting beans to JSON with <code>JSONObject(Object bean)</code>,
+ * compared with looking up the bean's getters by reflection every time, as it used to.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanBenchmark {
+
+  /** A bean with a handful of properties, like a download in progress */
+  public static class Download {
+    public String getUrl() { return "https://labbcat.example.org/files/mop/wav/mop-01.wav"; }
+    public String getFileName() { return "mop-01.wav"; }
+    public long getContentLength() { return 10240000; }
+    public long getBytesSoFar() { return 5120000; }
+    public boolean isComplete() { return false; }
+    public String getClientRef() { return "1718262412345"; }
+  }
+
+  Download bean = new Download();
+
+  /** Convert a bean with JSONObject(Object bean) */
+  @Benchmark public JSONObject cached() {
+    return new JSONObject(bean);
+  }
+
+  /** Convert a bean by reflection, with no cache */
+  @Benchmark public JSONObject reflective() {
+    JSONObject json = new JSONObject();
+    Class<?> klass = bean.getClass();
+    boolean includeSuperClass = klass.getClassLoader() != null;
+    Method[] methods = includeSuperClass ? klass.getMethods() : klass.getDeclaredMethods();
+    for (int i = 0; i < methods.length; i += 1) {
+      try {
+        Method method = methods[i];
+        if (Modifier.isPublic(method.getModifiers())) {
+          String name = method.getName();
+          String key = "";
+          if (name.startsWith("get")) {
+            if ("getClass".equals(name) || "getDeclaringClass".equals(name)) {
+              key = "";
+            } else {
+              key = name.substring(3);
+            }
+          } else if (name.startsWith("is")) {
+            key = name.substring(2);
+          }
+          if (key.length() > 0
+              && Character.isUpperCase(key.charAt(0))
+              && method.getParameterTypes().length == 0) {
+            if (key.length() == 1) {
+              key = key.toLowerCase();
+            } else if (!Character.isUpperCase(key.charAt(1))) {
+              key = key.substring(0, 1).toLowerCase() + key.substring(1);
+            }
+            Object result = method.invoke(bean, (Object[]) null);
+            if (result != null) {
+              json.put(key, JSONObject.wrap(result));
+            }
+          }
+        }
+      } catch (Exception ignore) {
+      }
+    }
+    return json;
+  }
+
+} // end of class BeanBenchmark
@@ -0,0 +1,151 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.json.CDL;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for reading a formant table of comma delimited text with {@link CDL}, as a
+ * whole from a String and a row at a time from a Reader, compared with the way it used to
+ * be read - through a JSONTokener, building quoted values in a new StringBuffer each time.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CdlBenchmark {
+
+  /** Number of rows in the table */
+  @Param({"20000"})
+  public int rows;
+
+  String text;
+
+  @Setup public void setup() {
+    Random random = new Random(1);
+    StringBuilder s = new StringBuilder("time,F1,F2,F3,label\n");
+    for (int r = 0; r < rows; r++) {
+      s.append(r * 0.00625).append(',')
+        .append(300 + random.nextInt(600)).append(',')
+        .append(900 + random.nextInt(1500)).append(',')
+        .append(2000 + random.nextInt(1500)).append(',')
+        .append(r % 10 == 0 ? "\"pause, long\"" : "\"w" + (r / 10) + "\"").append('\n');
+    }
+    text = s.toString();
+  }
+
+  /** Read the table the way it used to be read */
+  @Benchmark public JSONArray legacy() {
+    JSONTokener x = new JSONTokener(text);
+    JSONArray names = legacyRow(x);
+    JSONArray ja = new JSONArray();
+    for (;;) {
+      JSONArray row = legacyRow(x);
+      if (row == null) break;
+      ja.put(row.toJSONObject(names));
+    }
+    return ja;
+  }
+
+  /** Read the whole table from a String */
+  @Benchmark public JSONArray toJSONArray() {
+    return CDL.toJSONArray(text);
+  }
+
+  /** Read the table a row at a time from a Reader */
+  @Benchmark public int rowsReader() {
+    Iterator<JSONObject> rows = CDL.rows(new StringReader(text));
+    int count = 0;
+    while (rows.hasNext()) {
+      rows.next();
+      count++;
+    }
+    return count;
+  }
+
+  /** CDL.rowToJSONArray as it used to be */
+  static JSONArray legacyRow(JSONTokener x) throws JSONException {
+    JSONArray ja = new JSONArray();
+    for (;;) {
+      String value = legacyValue(x);
+      char c = x.next();
+      if (value == null || (ja.length() == 0 && value.length() == 0 && c != ',')) {
+        return null;
+      }
+      ja.put(value);
+      for (;;) {
+        if (c == ',') break;
+        if (c != ' ') {
+          if (c == '\n' || c == '\r' || c == 0) return ja;
+          throw x.syntaxError("Bad character '" + c + "' (" + (int)c + ").");
+        }
+        c = x.next();
+      }
+    }
+  }
+
+  /** CDL.getValue as it used to be */
+  static String legacyValue(JSONTokener x) throws JSONException {
+    char c;
+    do {
+      c = x.next();
+    } while (c == ' ' || c == '\t');
+    switch (c) {
+      case 0:
+        return null;
+      case '"':
+      case '\'':
+        char q = c;
+        StringBuffer sb = new StringBuffer();
+        for (;;) {
+          c = x.next();
+          if (c == q) break;
+          if (c == 0 || c == '\n' || c == '\r') {
+            throw x.syntaxError("Missing close quote '" + q + "'.");
+          }
+          sb.append(c);
+        }
+        return sb.toString();
+      case ',':
+        x.back();
+        return "";
+      default:
+        x.back();
+        return x.nextTo(',');
+    }
+  }
+
+} // end of class CdlBenchmark
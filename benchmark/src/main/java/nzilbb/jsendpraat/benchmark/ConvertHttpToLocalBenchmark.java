@@ -0,0 +1,77 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nzilbb.jsendpraat.ProgressReporter;
+import nzilbb.jsendpraat.SendPraat;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for substituting local file names for URLs in Praat commands, where the
+ * files have already been downloaded.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConvertHttpToLocalBenchmark {
+
+  /** Number of URLs in the command */
+  @Param({"0", "1", "2"})
+  public int urls;
+
+  LocalHttpServer server;
+  SendPraat host;
+  String command;
+
+  @Setup public void setup() throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    server = new LocalHttpServer();
+    host = new SendPraat() {
+        // don't look for Praat
+        public boolean checkPraatLocation() { return true; }
+      };
+    StringBuilder s = new StringBuilder("Read from file...");
+    for (int u = 0; u < urls; u++) {
+      s.append(" ").append(server.getBaseUrl()).append("/10240/file-" + u + ".wav");
+    }
+    command = s.toString();
+    // download files, so they're cached
+    host.convertHttpToLocal(command, new ProgressReporter(null, null, null), null);
+  }
+
+  @TearDown public void tearDown() {
+    server.stop();
+  }
+
+  /** Substitute local files for URLs */
+  @Benchmark public String convert() throws Exception {
+    return host.convertHttpToLocal(command, new ProgressReporter(null, null, null), null);
+  }
+
+} // end of class ConvertHttpToLocalBenchmark
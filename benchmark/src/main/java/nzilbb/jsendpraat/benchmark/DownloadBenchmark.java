@@ -0,0 +1,114 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nzilbb.http.FileDownloader;
+import nzilbb.jsendpraat.ProgressReporter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for downloading files, from an in-process HTTP server.
+ * <p>Each operation downloads the whole file, so throughput is the size divided by the
+ * time per operation.
+ * <p>The concurrent benchmark has several clients ask for the same file at once, as
+ * happens when it's opened from more than one tab; they should share one transfer.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DownloadBenchmark {
+
+  /** Size of the file to download, in bytes */
+  @Param({"102400", "10485760"})
+  public long size;
+
+  /** Number of clients asking for the same file at once */
+  @Param({"4"})
+  public int clients;
+
+  LocalHttpServer server;
+  URL url;
+  int fileCount = 0;
+  int requests = 0;
+  int operations = 0;
+
+  @Setup public void setup() throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    server = new LocalHttpServer();
+    url = new URL(server.getBaseUrl() + "/" + size + "/test.wav");
+  }
+
+  @TearDown public void tearDown() {
+    if (operations > 0) {
+      System.out.println(
+        (requests / operations) + " requests per " + clients + " concurrent clients");
+    }
+    server.stop();
+  }
+
+  /** Download a file, reporting progress as the host does */
+  @Benchmark public File download() throws Exception {
+    FileDownloader downloader = new FileDownloader(
+      url, new ProgressReporter(null, null, null).newTransfer(), null);
+    downloader.setCache(false);
+    downloader.run(); // on this thread
+    File file = downloader.getLocalFile();
+    if (file == null) throw new Exception(downloader.getLastError());
+    file.delete();
+    return file;
+  }
+
+  /** Download a new file with several clients at once, with caching on */
+  @Benchmark public File concurrent() throws Exception {
+    URL fileUrl = new URL(server.getBaseUrl() + "/" + size + "/test-" + (++fileCount) + ".wav");
+    int requestsBefore = server.getRequestCount();
+    List<FileDownloader> downloaders = new ArrayList<FileDownloader>();
+    for (int c = 0; c < clients; c++) {
+      FileDownloader downloader = new FileDownloader(
+        fileUrl, new ProgressReporter(null, null, null).newTransfer(), null);
+      downloaders.add(downloader);
+      downloader.start();
+    }
+    File file = null;
+    for (FileDownloader downloader : downloaders) {
+      downloader.join();
+      if (downloader.getLocalFile() == null) throw new Exception(downloader.getLastError());
+      file = downloader.getLocalFile();
+    }
+    requests += server.getRequestCount() - requestsBefore;
+    operations++;
+    file.delete();
+    return file;
+  }
+
+} // end of class DownloadBenchmark
@@ -0,0 +1,127 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import nzilbb.http.FileDownloader;
+
+/**
+ * Checks that the downloaders' shared state holds up under many concurrent downloads.
+ * <p>Hundreds of {@link FileDownloader}s are started at once, several for each of a set of
+ * files from an in-process HTTP server, and each adds an authorization for its host as it
+ * goes. Afterwards, every downloader must have the complete file, all the downloaders of
+ * a file must have the same one, the store must return it for the file's URL, each file
+ * must have been requested from the server only once, and no authorization may be lost.
+ * <p>This is not a JMH benchmark, as it checks correctness rather than measuring time;
+ * run it with:
+ * <pre>java -cp target/benchmarks.jar nzilbb.jsendpraat.benchmark.DownloadStress</pre>
+ * optionally followed by the number of downloaders (default 400) and the number of files
+ * (default 100). The exit status is 1 if anything was lost.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class DownloadStress {
+
+  /** Size of each file, in bytes */
+  static final int SIZE = 65536;
+
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int downloaderCount = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+    int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    LocalHttpServer server = new LocalHttpServer();
+    long run = System.currentTimeMillis(); // so that files from previous runs aren't cached
+    URL[] urls = new URL[fileCount];
+    for (int f = 0; f < fileCount; f++) {
+      urls[f] = new URL(server.getBaseUrl() + "/" + SIZE + "/stress-" + run + "-" + f + ".wav");
+    }
+
+    // start them all at once
+    final CountDownLatch go = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    final FileDownloader[] downloaders = new FileDownloader[downloaderCount];
+    for (int d = 0; d < downloaderCount; d++) {
+      final URL url = urls[d % fileCount];
+      final String authorization = "Basic stress-" + d;
+      final FileDownloader downloader = new FileDownloader(url);
+      downloaders[d] = downloader;
+      Thread thread = new Thread(new Runnable() {
+          public void run() {
+            try { go.await(); } catch (InterruptedException x) { return; }
+            FileDownloader.addAuthorization(url, authorization);
+            downloader.run();
+          }
+        });
+      threads.add(thread);
+      thread.start();
+    }
+    long started = System.nanoTime();
+    go.countDown();
+    for (Thread thread : threads) thread.join();
+    long millis = (System.nanoTime() - started) / 1000000;
+
+    int problems = 0;
+    for (int d = 0; d < downloaderCount; d++) {
+      URL url = urls[d % fileCount];
+      File file = downloaders[d].getLocalFile();
+      File stored = FileDownloader.getDownloadedFile(url);
+      if (file == null) {
+        System.out.println("Downloader " + d + " failed: " + downloaders[d].getLastError());
+        problems++;
+      } else if (file.length() != SIZE) {
+        System.out.println("Downloader " + d + " got " + file.length() + " bytes of " + url);
+        problems++;
+      } else if (!file.equals(stored)) {
+        System.out.println(
+          "Downloader " + d + " got " + file + " but the store has " + stored + " for " + url);
+        problems++;
+      }
+    }
+    Set<String> authorizations = FileDownloader.getAuthorizations(urls[0]);
+    for (int d = 0; d < downloaderCount; d++) {
+      if (!authorizations.contains("Basic stress-" + d)) {
+        System.out.println("Authorization " + d + " lost");
+        problems++;
+      }
+    }
+    int requests = server.getRequestCount();
+    if (requests != fileCount) {
+      System.out.println(requests + " requests for " + fileCount + " files");
+      problems++;
+    }
+    server.stop();
+    FileDownloader.deleteDownloadedFiles();
+
+    System.out.println(
+      downloaderCount + " downloaders of " + fileCount + " files in " + millis + " ms: "
+      + requests + " requests, " + authorizations.size() + " authorizations, "
+      + problems + " problems");
+    System.exit(problems == 0 ? 0 : 1);
+  } // end of main()
+
+} // end of class DownloadStress
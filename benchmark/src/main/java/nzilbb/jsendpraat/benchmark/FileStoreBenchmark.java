@@ -0,0 +1,141 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Hashtable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import nzilbb.http.FileDownloader;
+import nzilbb.http.TemporaryFileStore;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for the shared state of downloaders: the {@link TemporaryFileStore} of
+ * downloaded files and the authorizations for each host, used from many threads at once.
+ * <p>Lookups in the store are compared with lookups in a <code>Hashtable</code>, which
+ * the store used to use.
+ * <p>Each thread registers files under its own keys, and tear-down checks that none of
+ * them have been lost; any that have are printed.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class FileStoreBenchmark {
+
+  /** Number of files already in the store */
+  static final int FILES = 1000;
+
+  /** Number of keys each thread registers files under */
+  static final int KEYS = 10000;
+
+  /** A store whose files aren't real, so are forgotten instead of deleted */
+  static class Store extends TemporaryFileStore {
+    Store() { super("jsendpraatbenchmark"); }
+    void forget() { hFilesAlreadyDownloaded.clear(); }
+  }
+
+  Store store;
+  Hashtable<Object,File> hashtable = new Hashtable<Object,File>();
+  String[] keys = new String[FILES];
+  URL url;
+  ConcurrentLinkedQueue<ThreadKeys> threads = new ConcurrentLinkedQueue<ThreadKeys>();
+
+  /** The keys and files of one thread */
+  @State(Scope.Thread)
+  public static class ThreadKeys {
+    String[] keys = new String[KEYS];
+    File[] files = new File[KEYS];
+    int next = 0;
+    int registered = 0;
+    int lookup = 0;
+
+    @Setup public void setup(FileStoreBenchmark benchmark) {
+      benchmark.threads.add(this);
+      int thread = benchmark.threads.size();
+      for (int k = 0; k < KEYS; k++) {
+        keys[k] = "https://labbcat.example.org/files/" + thread + "/" + k + ".wav";
+        files[k] = new File(keys[k]);
+      }
+    }
+
+    /** Prints how many registered files can't be found in the store */
+    void check(TemporaryFileStore store) {
+      int lost = 0;
+      for (int k = 0; k < registered; k++) {
+        if (store.getFile(keys[k]) != files[k]) lost++;
+      }
+      if (lost > 0) System.out.println(lost + " of " + registered + " files lost");
+    }
+  }
+
+  @Setup public void setup() throws Exception {
+    store = new Store();
+    for (int f = 0; f < FILES; f++) {
+      keys[f] = "https://labbcat.example.org/files/" + f + ".wav";
+      store.putFile(keys[f], new File(keys[f]));
+      hashtable.put(keys[f], new File(keys[f]));
+    }
+    url = new URL(keys[0]);
+    FileDownloader.addAuthorization(url, "Basic dXNlcjpwYXNzd29yZA==");
+  }
+
+  @TearDown public void tearDown() {
+    for (ThreadKeys thread : threads) thread.check(store);
+    store.forget();
+    store.close();
+  }
+
+  /** Look up a file in the store */
+  @Benchmark public File lookup(ThreadKeys thread) {
+    return store.getFile(keys[thread.lookup++ % FILES]);
+  }
+
+  /** Look up a file in a Hashtable */
+  @Benchmark public File legacyLookup(ThreadKeys thread) {
+    return hashtable.get(keys[thread.lookup++ % FILES]);
+  }
+
+  /** Register a file and look up another, as concurrent downloaders do */
+  @Benchmark public File register(ThreadKeys thread) {
+    int k = thread.next++ % KEYS;
+    store.putFile(thread.keys[k], thread.files[k]);
+    if (thread.registered < KEYS) thread.registered++;
+    return store.getFile(keys[thread.lookup++ % FILES]);
+  }
+
+  /** Get the authorizations for a host, as each download does */
+  @Benchmark public int authorizations() {
+    int count = 0;
+    for (String authorization : FileDownloader.getAuthorizations(url)) count++;
+    return count;
+  }
+
+} // end of class FileStoreBenchmark
@@ -0,0 +1,90 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import nzilbb.jsendpraat.MessageFrameWriter;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for encoding and decoding native messaging frames - a 4-byte size followed by
+ * a UTF-8 JSON message.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrameBenchmark {
+
+  /** Which message to use */
+  @Param({"SENDPRAAT", "SENDPRAAT_SCRIPT", "REPLY", "PROGRESS"})
+  public String message;
+
+  JSONObject json;
+  MessageFrameWriter writer;
+  byte[] frame;
+
+  /** Discards everything written to it */
+  static class NullOutputStream extends OutputStream {
+    public void write(int b) {}
+    public void write(byte[] b, int off, int len) {}
+  }
+  
+  @Setup public void setup() throws Exception {
+    String text = (String)Messages.class.getField(message).get(null);
+    json = new JSONObject(text);
+    writer = new MessageFrameWriter(new NullOutputStream());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new MessageFrameWriter(bytes).write(json);
+    frame = bytes.toByteArray();
+  }
+
+  /** Encode a message as a frame, as the host does for replies and progress */
+  @Benchmark public void encode() throws Exception {
+    writer.write(json);
+  }
+
+  /** Decode a frame into a message, as the host does for incoming messages */
+  @Benchmark public JSONObject decode() throws Exception {
+    DataInputStream stdin = new DataInputStream(new ByteArrayInputStream(frame));
+    byte[] messageSizeBuffer = new byte[4];
+    stdin.readFully(messageSizeBuffer);
+    long messageSize = ByteBuffer.wrap(messageSizeBuffer)
+      .order(ByteOrder.nativeOrder()).getInt() & 0xFFFFFFFFL;
+    byte[] bMessage = new byte[(int)messageSize];
+    stdin.readFully(bMessage);
+    return new JSONObject(new String(bMessage, "UTF-8"));
+  }
+
+} // end of class FrameBenchmark
@@ -0,0 +1,123 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.json.zip.BitBufferReader;
+import org.json.zip.BitBufferWriter;
+import org.json.zip.BitInputStream;
+import org.json.zip.BitOutputStream;
+import org.json.zip.BitReader;
+import org.json.zip.BitWriter;
+import org.json.zip.Huff;
+import org.json.zip.JSONzip;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for Huffman coding the bytes of a long sendpraat script with
+ * {@link org.json.zip.Huff}, which JSONzip uses for the characters of strings.
+ * <p>Decoding is measured both with lookup tables, which need a bit reader that can look
+ * ahead, and a bit at a time, as happens with a bit reader that can't.
+ * <p>Bits are read and written either through streams or straight from/to a ByteBuffer.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HuffBenchmark {
+
+  /** Whether the bit reader can look ahead */
+  @Param({"true", "false"})
+  public boolean lookahead;
+
+  /** Whether bits go through streams or a ByteBuffer */
+  @Param({"stream", "buffer"})
+  public String bits;
+
+  byte[] text;
+  Huff huff;
+  byte[] encoded;
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  ByteBuffer buffer;
+
+  /** A bit reader that can't look ahead */
+  static class NoPeekBitReader implements BitReader {
+    BitReader bits;
+    NoPeekBitReader(BitReader bits) { this.bits = bits; }
+    public boolean bit() throws IOException { return bits.bit(); }
+    public long nrBits() { return bits.nrBits(); }
+    public boolean pad(int width) throws IOException { return bits.pad(width); }
+    public int read(int width) throws IOException { return bits.read(width); }
+  }
+
+  @Setup public void setup() throws Exception {
+    text = Messages.SENDPRAAT_SCRIPT.getBytes(StandardCharsets.UTF_8);
+    huff = new Huff(JSONzip.end + 1);
+    for (byte b : text) huff.tick(b & 0xff);
+    huff.generate();
+    buffer = ByteBuffer.allocate(text.length * 4);
+    bytes.reset();
+    BitOutputStream out = new BitOutputStream(bytes);
+    for (byte b : text) huff.write(b & 0xff, out);
+    huff.write(JSONzip.end, out);
+    out.pad(8);
+    encoded = bytes.toByteArray();
+  }
+
+  /** Encode the text */
+  @Benchmark public int encode() throws Exception {
+    BitWriter out;
+    if ("buffer".equals(bits)) {
+      buffer.clear();
+      out = new BitBufferWriter(buffer);
+    } else {
+      bytes.reset();
+      out = new BitOutputStream(bytes);
+    }
+    for (byte b : text) huff.write(b & 0xff, out);
+    huff.write(JSONzip.end, out);
+    out.pad(8);
+    return "buffer".equals(bits) ? buffer.position() : bytes.size();
+  }
+
+  /** Decode the text */
+  @Benchmark public int decode() throws Exception {
+    BitReader in = "buffer".equals(bits)
+      ? new BitBufferReader(ByteBuffer.wrap(encoded))
+      : new BitInputStream(new ByteArrayInputStream(encoded));
+    if (!lookahead) in = new NoPeekBitReader(in);
+    int count = 0;
+    while (huff.read(in) != JSONzip.end) count++;
+    return count;
+  }
+
+} // end of class HuffBenchmark
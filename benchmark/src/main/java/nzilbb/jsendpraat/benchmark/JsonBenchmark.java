@@ -0,0 +1,104 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONByteWriter;
+import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for parsing and serializing the JSON messages handled by the host.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+  /** Which message to use */
+  @Param({"SENDPRAAT", "SENDPRAAT_SCRIPT", "UPLOAD", "UPLOAD_RESPONSE", "PROGRESS"})
+  public String message;
+
+  String text;
+  JSONObject json;
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  JSONByteWriter writer = new JSONByteWriter(bytes);
+
+  @Setup public void setup() throws Exception {
+    text = (String)Messages.class.getField(message).get(null);
+    json = new JSONObject(text);
+  }
+
+  /** Parse a message */
+  @Benchmark public JSONObject parse() {
+    return new JSONObject(text);
+  }
+
+  /** Parse a message a character at a time from a Reader, for comparison with parse() */
+  @Benchmark public JSONObject parseReader() {
+    return new JSONObject(new JSONTokener(new StringReader(text)));
+  }
+
+  /** Pick the "code" out of a message with a pull parser from a Reader, skipping the rest */
+  @Benchmark public Object pullReader() {
+    JSONReader reader = new JSONReader(new StringReader(text));
+    Object code = null;
+    reader.nextToken();
+    while (reader.nextToken() == JSONReader.Token.KEY) {
+      if ("code".equals(reader.getString())) {
+        code = reader.readValue();
+      } else {
+        reader.skipValue();
+      }
+    }
+    return code;
+  }
+
+  /** Serialize a message */
+  @Benchmark public String serialize() {
+    return json.toString();
+  }
+
+  /** Serialize a message to UTF-8 via a String */
+  @Benchmark public byte[] serializeUtf8String() {
+    return json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Serialize a message straight to UTF-8 */
+  @Benchmark public int serializeUtf8Bytes() {
+    bytes.reset();
+    writer.write(json).flush();
+    return bytes.size();
+  }
+
+} // end of class JsonBenchmark
@@ -0,0 +1,90 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process HTTP server serving fixed-size content, so downloads can be benchmarked
+ * without the network.
+ * <p>Content is served at <tt>/<var>size</var>/<var>name</var></tt>, where <var>size</var>
+ * is the number of bytes to return, e.g. <tt>/1048576/test.wav</tt>.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class LocalHttpServer {
+
+  private HttpServer server;
+  private AtomicInteger requestCount = new AtomicInteger();
+
+  /**
+   * Starts the server on an ephemeral port.
+   * @throws Exception
+   */
+  public LocalHttpServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    final byte[] chunk = new byte[65536];
+    Arrays.fill(chunk, (byte)0x55);
+    server.createContext("/", exchange -> {
+        requestCount.incrementAndGet();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        long size = Long.parseLong(parts[1]);
+        exchange.getResponseHeaders().set("Content-Type", "audio/wav");
+        exchange.sendResponseHeaders(200, size);
+        OutputStream os = exchange.getResponseBody();
+        for (long sent = 0; sent < size; sent += chunk.length) {
+          os.write(chunk, 0, (int)Math.min(chunk.length, size - sent));
+        }
+        os.close();
+      });
+    server.start();
+  } // end of constructor
+
+  /**
+   * The base URL of the server.
+   * @return e.g. "http://127.0.0.1:12345"
+   */
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  } // end of getBaseUrl()
+
+  /**
+   * The number of requests served so far.
+   * @return The number of requests.
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  } // end of getRequestCount()
+
+  /**
+   * Stops the server.
+   */
+  public void stop() {
+    server.stop(0);
+  } // end of stop()
+
+} // end of class LocalHttpServer
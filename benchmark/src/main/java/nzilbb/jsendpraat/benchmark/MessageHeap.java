@@ -0,0 +1,113 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Measures the heap retained by parsed messages, for a stream that's a realistic mix of
+ * sendpraat and upload messages, host replies and progress events.
+ * <p>This is not a JMH benchmark, as JMH measures time and allocation rather than retained
+ * size; run it with:
+ * <pre>java -cp target/benchmarks.jar nzilbb.jsendpraat.benchmark.MessageHeap</pre>
+ * <p>With the argument "track", it instead measures the heap retained by a parsed pitch
+ * track, an array of 100,000 times and frequencies:
+ * <pre>java -cp target/benchmarks.jar nzilbb.jsendpraat.benchmark.MessageHeap track</pre>
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class MessageHeap {
+
+  /** The message stream; mostly progress events, as during a download */
+  static final String[] STREAM = {
+    Messages.SENDPRAAT, Messages.PROGRESS, Messages.PROGRESS, Messages.PROGRESS,
+    Messages.PROGRESS, Messages.PROGRESS, Messages.REPLY, Messages.UPLOAD, Messages.REPLY
+  };
+
+  /** Parsed messages, kept in a field so that they're still reachable when measured */
+  static Object[] retained;
+
+  public static void main(String[] args) {
+    if (args.length > 0 && "track".equals(args[0])) {
+      track(100000);
+      return;
+    }
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    for (int pass = 0; pass < 3; pass++) { // first passes are warm-up
+      long before = usedHeap();
+      retained = new Object[count];
+      long textBytes = 0;
+      for (int m = 0; m < count; m++) {
+        // copy the text, so that nothing is shared with the message constants
+        String text = new String(STREAM[m % STREAM.length].toCharArray());
+        textBytes += text.length();
+        retained[m] = new JSONObject(text);
+      }
+      long after = usedHeap();
+      System.out.println(
+        count + " messages (" + (textBytes / count) + " chars on average): "
+        + ((after - before) / count) + " bytes retained per message");
+      retained = null;
+    }
+  } // end of main()
+
+  /**
+   * Measures the heap retained by a parsed pitch track.
+   * @param samples The number of samples in the track.
+   */
+  static void track(int samples) {
+    Random random = new Random(1);
+    StringBuilder s = new StringBuilder("[");
+    for (int i = 0; i < samples; i++) {
+      if (i > 0) s.append(',');
+      // times, and frequencies that are sometimes whole numbers
+      s.append(i % 2 == 0 ? String.valueOf(i * 0.005)
+               : String.valueOf(Math.round(random.nextDouble() * 200000) / 1000.0 + 75));
+    }
+    String text = s.append(']').toString();
+    for (int pass = 0; pass < 3; pass++) { // first passes are warm-up
+      long before = usedHeap();
+      retained = new Object[] { new JSONArray(text) };
+      long after = usedHeap();
+      System.out.println(
+        samples + " samples: " + ((after - before) / samples) + " bytes retained per sample");
+      retained = null;
+    }
+  } // end of track()
+
+  /**
+   * Determines how much heap is in use, after garbage collection.
+   * @return The number of bytes in use.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      try { Thread.sleep(50); } catch (InterruptedException x) {}
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // end of usedHeap()
+
+} // end of class MessageHeap
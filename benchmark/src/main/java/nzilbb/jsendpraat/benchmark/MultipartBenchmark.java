@@ -0,0 +1,97 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour, 
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import nzilbb.http.HttpRequestPostMultipart;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for generating multipart upload request bodies.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultipartBenchmark {
+
+  /** Size of the uploaded file, in bytes */
+  @Param({"10240", "1048576"})
+  public int size;
+
+  File file;
+  JSONObject otherParameters;
+
+  /** Connection that discards the request body */
+  static class NullConnection extends HttpURLConnection {
+    NullConnection(URL url) { super(url); }
+    public OutputStream getOutputStream() {
+      return new OutputStream() {
+        public void write(int b) {}
+        public void write(byte[] b, int off, int len) {}
+      };
+    }
+    public void connect() {}
+    public void disconnect() {}
+    public boolean usingProxy() { return false; }
+  }
+
+  @Setup public void setup() throws Exception {
+    file = File.createTempFile("MultipartBenchmark-", ".TextGrid");
+    file.deleteOnExit();
+    byte[] content = new byte[size];
+    Arrays.fill(content, (byte)'x');
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(content);
+    out.close();
+    otherParameters = new JSONObject(Messages.UPLOAD).getJSONObject("otherParameters");
+  }
+
+  @TearDown public void tearDown() {
+    file.delete();
+  }
+
+  /** Generate a request body, as the host does for uploads */
+  @Benchmark public HttpURLConnection generate() throws Exception {
+    HttpRequestPostMultipart postRequest = new HttpRequestPostMultipart(
+      new NullConnection(new URL("http://localhost/upload")), "Basic bGFiYmNhdDpsYWJiY2F0");
+    postRequest.setHeader("Accept", "application/json");
+    postRequest.setParameter("uploadfile", file);
+    for (String parameter : otherParameters.keySet()) {
+      postRequest.setParameter(parameter, otherParameters.get(parameter));
+    }
+    return postRequest.post();
+  }
+
+} // end of class MultipartBenchmark
@@ -0,0 +1,193 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.io.ByteArrayOutputStream;
+import org.json.JSONArray;
+import org.json.JSONByteWriter;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for converting unquoted JSON values, like the times and formant frequencies
+ * in Praat's output, with <code>JSONObject.stringToValue()</code>, against the old
+ * implementation, which threw and caught an exception for every value that wasn't a number.
+ * <p>Writing the values back out, with <code>JSONObject.numberToString()</code> and
+ * {@link JSONByteWriter}, is measured against formatting doubles with
+ * <code>Double.toString()</code> and shaving off trailing zeros, as it used to.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberBenchmark {
+
+  /** Which kind of values to convert */
+  @Param({"integers", "decimals", "mixed"})
+  public String values;
+
+  String[] strings;
+  String array;
+  Number[] numbers;
+  JSONArray json;
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  JSONByteWriter writer = new JSONByteWriter(bytes);
+
+  @Setup public void setup() {
+    Random random = new Random(1);
+    strings = new String[1000];
+    for (int i = 0; i < strings.length; i++) {
+      boolean integer = "integers".equals(values)
+        || ("mixed".equals(values) && i % 3 == 0);
+      boolean word = "mixed".equals(values) && i % 3 == 1;
+      if (integer) {
+        strings[i] = Integer.toString(random.nextInt(1000000) - 1000);
+      } else if (word) {
+        strings[i] = i % 2 == 0 ? "true" : "--undefined--";
+      } else {
+        strings[i] = String.format("%.6f", random.nextDouble() * 5000);
+      }
+    }
+    StringBuilder s = new StringBuilder("[");
+    for (String string : strings) {
+      if (s.length() > 1) s.append(',');
+      s.append(string);
+    }
+    array = s.append(']').toString();
+    json = new JSONArray(array);
+    numbers = new Number[strings.length];
+    for (int i = 0; i < strings.length; i++) {
+      Object value = JSONObject.stringToValue(strings[i]);
+      numbers[i] = value instanceof Number ? (Number)value : Double.valueOf(i / 8.0);
+    }
+  }
+
+  /** Convert each value */
+  @Benchmark public void stringToValue(Blackhole blackhole) {
+    for (String string : strings) blackhole.consume(JSONObject.stringToValue(string));
+  }
+
+  /** Convert each value the old way */
+  @Benchmark public void legacyStringToValue(Blackhole blackhole) {
+    for (String string : strings) blackhole.consume(legacyStringToValue(string));
+  }
+
+  /** Parse an array of the values */
+  @Benchmark public JSONArray parseArray() {
+    return new JSONArray(array);
+  }
+
+  /** Format each value as a number */
+  @Benchmark public void numberToString(Blackhole blackhole) {
+    for (Number number : numbers) blackhole.consume(JSONObject.numberToString(number));
+  }
+
+  /** Format each value as a number the old way */
+  @Benchmark public void legacyNumberToString(Blackhole blackhole) {
+    for (Number number : numbers) blackhole.consume(legacyNumberToString(number));
+  }
+
+  /** Get the values of an array of them as doubles */
+  @Benchmark public double[] toDoubleArray() {
+    return "mixed".equals(values) ? new double[0] : json.toDoubleArray();
+  }
+
+  /** Get the values of an array of them as doubles, one at a time */
+  @Benchmark public double sumDoubles() {
+    double sum = 0;
+    int length = json.length();
+    for (int i = 0; i < length; i++) sum += json.optDouble(i);
+    return sum;
+  }
+
+  /** Serialize an array of the values */
+  @Benchmark public int writeArray() {
+    bytes.reset();
+    writer.reset().write(json).flush();
+    return bytes.size();
+  }
+
+  /** JSONObject.numberToString as it was */
+  static String legacyNumberToString(Number number) {
+    JSONObject.testValidity(number);
+    String string = number.toString();
+    if (string.indexOf('.') > 0 && string.indexOf('e') < 0
+        && string.indexOf('E') < 0) {
+      while (string.endsWith("0")) {
+        string = string.substring(0, string.length() - 1);
+      }
+      if (string.endsWith(".")) {
+        string = string.substring(0, string.length() - 1);
+      }
+    }
+    return string;
+  }
+
+  /** JSONObject.stringToValue as it was */
+  static Object legacyStringToValue(String string) {
+    Double d;
+    if (string.equals("")) {
+      return string;
+    }
+    if (string.equalsIgnoreCase("true")) {
+      return Boolean.TRUE;
+    }
+    if (string.equalsIgnoreCase("false")) {
+      return Boolean.FALSE;
+    }
+    if (string.equalsIgnoreCase("null")) {
+      return JSONObject.NULL;
+    }
+    char b = string.charAt(0);
+    if ((b >= '0' && b <= '9') || b == '-') {
+      try {
+        if (string.indexOf('.') > -1 || string.indexOf('e') > -1
+            || string.indexOf('E') > -1) {
+          d = Double.valueOf(string);
+          if (!d.isInfinite() && !d.isNaN()) {
+            return d;
+          }
+        } else {
+          Long myLong = Long.valueOf(string);
+          if (string.equals(myLong.toString())) {
+            if (myLong == myLong.intValue()) {
+              return myLong.intValue();
+            } else {
+              return myLong;
+            }
+          }
+        }
+      } catch (Exception ignore) {
+      }
+    }
+    return string;
+  }
+
+} // end of class NumberBenchmark
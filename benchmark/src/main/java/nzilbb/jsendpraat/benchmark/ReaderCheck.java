@@ -0,0 +1,176 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONBufferTokener;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONReader;
+
+/**
+ * Checks that {@link JSONReader} accepts and rejects the same texts as {@link JSONObject}
+ * and {@link JSONArray}, with the same error messages, whether the text is stepped through
+ * a token at a time, or skipped with {@link JSONReader#skipValue()} or
+ * {@link JSONReader#skipToEnd()}. Skipped values aren't kept, so only syntax errors are
+ * expected from skipping, not duplicate keys.
+ * <p>This is not a JMH benchmark, as it checks correctness rather than measuring time;
+ * run it with:
+ * <pre>java -cp target/benchmarks.jar nzilbb.jsendpraat.benchmark.ReaderCheck</pre>
+ * optionally followed by more texts to check. The exit status is 1 if the parsers disagree
+ * on any text.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class ReaderCheck {
+
+  /** Texts to check, valid and not, including the lenient forms the tree parsers allow */
+  static final String[] TEXTS = {
+    "{\"a\":1,\"b\":[true,false,null,\"x\",1.5,-2,'y',z],\"c\":{\"d\":{}}}",
+    "[1,,2]", "[,1]", "[,]", "[,,]", "[1,2,]", "[1,,]", "[[],[,],{}]",
+    "{\"a\":[1,,2],\"c\":3}", "{\"a\":{\"b\":[,]},\"c\":3}",
+    "{\"b\"=>2}", "{\"b\"=2}", "{\"a\":{\"b\"=>2}}", "[{\"b\"=2}]",
+    "{\"a\":1;\"b\":2}", "{\"a\":1,}", "[1;2]", "{\"a\":[1;2]}",
+    "{{\"k\":1}:2}", "{\"a\":{[1]:2}}", "{a:b,c:'d'}",
+    "[1 2]", "{\"a\" 1}", "{\"a\":1 \"b\":2}", "{\"a\":}", "{\"a\":,}", "{,}", "{:1}",
+    "[", "[1,", "{", "{\"a\":1", "{\"a\":[1,2}", "[\"a\n\"]", "{\"a\":1,\"a\":2}"
+  };
+
+  public static void main(String[] args) {
+    int problems = 0;
+    int count = 0;
+    for (String[] texts : new String[][] { TEXTS, args }) {
+      for (String text : texts) {
+        count++;
+        String tree = tree(text);
+        String tokens = tokens(text);
+        String skipped = skipped(text, false);
+        String skippedToEnd = skipped(text, true);
+        // skipping doesn't build values, so only compare success or failure, and doesn't
+        // keep keys, so duplicates aren't noticed
+        String treeSkipped = tree.startsWith("error: ")
+          && !tree.startsWith("error: Duplicate key") ? tree : "ok";
+        if (!tree.equals(tokens) || !treeSkipped.equals(skipped)
+            || !treeSkipped.equals(skippedToEnd)) {
+          System.out.println(text.replace("\n", "\\n"));
+          System.out.println("  JSONObject/JSONArray: " + tree);
+          System.out.println("  nextToken:            " + tokens);
+          System.out.println("  skipValue:            " + skipped);
+          System.out.println("  skipToEnd:            " + skippedToEnd);
+          problems++;
+        }
+      } // next text
+    } // next set of texts
+    System.out.println(count + " texts, " + problems + " disagreements");
+    System.exit(problems == 0 ? 0 : 1);
+  } // end of main()
+
+  /**
+   * Parses the text with JSONObject or JSONArray.
+   * @param text The text.
+   * @return The parsed value, or the error.
+   */
+  static String tree(String text) {
+    try {
+      return String.valueOf(new JSONBufferTokener(text).nextValue());
+    } catch(JSONException exception) {
+      return error(exception);
+    }
+  } // end of tree()
+
+  /**
+   * Builds the value from the text a token at a time.
+   * @param text The text.
+   * @return The built value, or the error.
+   */
+  static String tokens(String text) {
+    try {
+      JSONReader reader = new JSONReader(text);
+      return String.valueOf(build(reader, reader.nextToken()));
+    } catch(JSONException exception) {
+      return error(exception);
+    }
+  } // end of tokens()
+
+  /**
+   * Skips the text's value, either with skipValue, or by starting it and skipping the rest
+   * with skipToEnd.
+   * @param text The text.
+   * @param toEnd Whether to use skipToEnd rather than skipValue.
+   * @return "ok" if the value was skipped, or the error.
+   */
+  static String skipped(String text, boolean toEnd) {
+    try {
+      JSONReader reader = new JSONReader(text);
+      if (toEnd) {
+        reader.nextToken();
+        reader.skipToEnd();
+      } else {
+        reader.skipValue();
+      }
+      if (reader.getDepth() != 0) return "error: not at the top level";
+      return "ok";
+    } catch(JSONException exception) {
+      return error(exception);
+    }
+  } // end of skipped()
+
+  /**
+   * Builds a value from tokens, the way the tree parsers would.
+   * @param reader The reader.
+   * @param token The token that starts the value.
+   * @return The value.
+   * @throws JSONException If there is a syntax error.
+   */
+  static Object build(JSONReader reader, JSONReader.Token token) throws JSONException {
+    switch (token) {
+      case START_OBJECT:
+        JSONObject object = new JSONObject();
+        while (reader.nextToken() == JSONReader.Token.KEY) {
+          String key = reader.getString();
+          object.putOnce(key, build(reader, reader.nextToken()));
+        }
+        return object;
+      case START_ARRAY:
+        JSONArray array = new JSONArray();
+        while ((token = reader.nextToken()) != JSONReader.Token.END_ARRAY) {
+          array.put(build(reader, token));
+        }
+        return array;
+      default:
+        return reader.getValue();
+    }
+  } // end of build()
+
+  /**
+   * Describes an error, without its position, which the parsers report differently.
+   * @param exception The error.
+   * @return The error message, up to its position.
+   */
+  static String error(JSONException exception) {
+    String message = exception.getMessage();
+    int at = message.lastIndexOf(" at ");
+    return "error: " + (at < 0 ? message : message.substring(0, at));
+  } // end of error()
+
+} // end of class ReaderCheck
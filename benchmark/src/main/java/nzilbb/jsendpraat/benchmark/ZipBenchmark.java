@@ -0,0 +1,94 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+
+package nzilbb.jsendpraat.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import nzilbb.jsendpraat.ZipEncoding;
+import org.json.JSONByteWriter;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for the "jsonzip" encoding of messages, compared with plain JSON.
+ * <p>The size of each message, plain and encoded, is printed during setup.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipBenchmark {
+
+  /** Which message to use */
+  @Param({"SENDPRAAT", "SENDPRAAT_SCRIPT", "UPLOAD_RESPONSE", "PROGRESS"})
+  public String message;
+
+  JSONObject json;
+  byte[] plain;
+  JSONObject wrapped;
+  byte[] wrappedBytes;
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  JSONByteWriter writer = new JSONByteWriter(bytes);
+
+  @Setup public void setup() throws Exception {
+    String text = (String)Messages.class.getField(message).get(null);
+    json = new JSONObject(text);
+    plain = text.getBytes(StandardCharsets.UTF_8);
+    wrapped = ZipEncoding.wrap(json);
+    wrappedBytes = wrapped.toString().getBytes(StandardCharsets.UTF_8);
+    System.out.println(
+      message + ": " + plain.length + " bytes plain, "
+      + ZipEncoding.zip(json).length + " bytes zipped, "
+      + wrappedBytes.length + " bytes wrapped in base64");
+  }
+
+  /** Serialize a message as plain JSON */
+  @Benchmark public int encodePlain() {
+    bytes.reset();
+    writer.reset().write(json).flush();
+    return bytes.size();
+  }
+
+  /** Compress a message and serialize the wrapper */
+  @Benchmark public int encodeZip() {
+    bytes.reset();
+    writer.reset().write(ZipEncoding.wrap(json)).flush();
+    return bytes.size();
+  }
+
+  /** Parse a plain JSON message */
+  @Benchmark public JSONObject decodePlain() {
+    return new JSONObject(new String(plain, StandardCharsets.UTF_8));
+  }
+
+  /** Parse a wrapper and decompress the message */
+  @Benchmark public JSONObject decodeZip() {
+    return ZipEncoding.unwrap(new JSONObject(new String(wrappedBytes, StandardCharsets.UTF_8)));
+  }
+
+} // end of class ZipBenchmark
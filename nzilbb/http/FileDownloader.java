@@ -26,6 +26,8 @@ import java.io.*;
 import java.net.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.jar.JarFile;
 import javax.swing.*;
 
@@ -37,8 +39,16 @@ public class FileDownloader extends Thread {
   // shared
   static private TemporaryFileStore filesAlreadyDownloaded = new TemporaryFileStore();
 
-  /** Maps of successful authorizations, keyed on host name */
-  static private HashMap<String,LinkedHashSet<String>> hostAuthorizations = new HashMap<String,LinkedHashSet<String>>();
+  /** Downloads in progress, keyed on URL, so that concurrent requests share one transfer */
+  static private ConcurrentHashMap<String,Transfer> transfers
+    = new ConcurrentHashMap<String,Transfer>();
+
+  /**
+   * Maps of successful authorizations, keyed on host name. The sets keep the order in
+   * which authorizations were added, and are rarely written, so they are copy-on-write.
+   */
+  static private ConcurrentHashMap<String,Set<String>> hostAuthorizations
+    = new ConcurrentHashMap<String,Set<String>>();
 
   // Attributes:
   private URL url_;
@@ -98,6 +108,30 @@ public class FileDownloader extends Thread {
     bDowncaseExtensions = bNewDowncaseExtensions;
   }
 
+  /**
+   * Whether to ask the user for a username and password if the server requires them. If
+   * this is false, and none of the known authorizations for the host work, the download
+   * fails.
+   * @see #getPromptForLogin()
+   * @see #setPromptForLogin(boolean)
+   */
+  protected boolean bPromptForLogin = true;
+  /**
+   * Getter for {@link #bPromptForLogin}: Whether to ask the user for a username and
+   * password if the server requires them.
+   * @return Whether to ask the user for a username and password if the server requires them.
+   */
+  public boolean getPromptForLogin() { return bPromptForLogin; }
+  /**
+   * Setter for {@link #bPromptForLogin}: Whether to ask the user for a username and
+   * password if the server requires them.
+   * @param bNewPromptForLogin Whether to ask the user for a username and password if the
+   * server requires them.
+   */
+  public void setPromptForLogin(boolean bNewPromptForLogin) {
+    bPromptForLogin = bNewPromptForLogin;
+  }
+
   /**
    * Whether the downloader is currently downloading or not
    * @see #getDownloading()
@@ -198,10 +232,13 @@ public class FileDownloader extends Thread {
    */
   public static void addAuthorization(URL url, String authorization) {
     if (authorization == null || authorization.length() == 0) return;
-    if (!hostAuthorizations.containsKey(url.getHost())) {
-      hostAuthorizations.put(url.getHost(), new LinkedHashSet<String>());
+    Set<String> authorizations = hostAuthorizations.get(url.getHost());
+    if (authorizations == null) {
+      authorizations = new CopyOnWriteArraySet<String>();
+      Set<String> existing = hostAuthorizations.putIfAbsent(url.getHost(), authorizations);
+      if (existing != null) authorizations = existing;
     }
-    hostAuthorizations.get(url.getHost()).add(authorization);		  
+    authorizations.add(authorization);
   } // end of addAuthorization()
    
   /**
@@ -210,8 +247,9 @@ public class FileDownloader extends Thread {
    * @return A (possibly empty) list of authorizations for a given URL.
    */
   public static Set<String> getAuthorizations(URL url) {
-    if (hostAuthorizations.containsKey(url.getHost())) {
-      return hostAuthorizations.get(url.getHost());
+    Set<String> authorizations = hostAuthorizations.get(url.getHost());
+    if (authorizations != null) {
+      return authorizations;
     } else {
       return new LinkedHashSet<String>();
     }
@@ -227,6 +265,15 @@ public class FileDownloader extends Thread {
     return filesAlreadyDownloaded.getFile(url.toString());
   } // end of getDownloadedFile()
       
+  /**
+   * Deletes all downloaded files. This should be called when downloads are no longer
+   * needed, e.g. when the program exits; if it isn't, they're deleted when the JVM shuts
+   * down.
+   */
+  public static void deleteDownloadedFiles() {
+    filesAlreadyDownloaded.close();
+  } // end of deleteDownloadedFiles()
+      
   /**
    * Start the thread
    */
@@ -253,8 +300,8 @@ public class FileDownloader extends Thread {
           if (url_.getProtocol().equals("file")) {
             localFile_ = new File(url_.getFile());
             if (pb_ != null) {
-              pb_.setValue(pb_.getMaximum());
               pb_.setString(localFile_.getPath());
+              pb_.setValue(pb_.getMaximum());
             }
             return;
           }
@@ -264,107 +311,47 @@ public class FileDownloader extends Thread {
             localFile_ = filesAlreadyDownloaded.getFile(url_.toString());
           }
           if (localFile_ == null || !localFile_.exists()) {
-            URLConnection cnxn = openConnection(url_);
-            if (cnxn == null) {
-              if (lastError != null) {
-                throw new Exception(lastError);
+            localFile_ = null;
+            String key = url_.toString();
+            while (localFile_ == null) {
+              Transfer transfer = new Transfer(bPromptForLogin);
+              Transfer inProgress = bCache ? transfers.putIfAbsent(key, transfer) : null;
+              if (inProgress != null) { // someone else is already downloading it
+                // share their progress and their file
+                if (pb_ != null) inProgress.attach(pb_);
+                try {
+                  localFile_ = inProgress.await();
+                } catch(Exception exception) {
+                  // if they couldn't ask for a login and we can, try again ourselves
+                  if (inProgress.getPromptForLogin() || !bPromptForLogin) throw exception;
+                }
               } else {
-                throw new Exception("Could not retrieve: " + url_);
-              }
-            }
-            int contentLength = cnxn.getContentLength();
-            if (contentLength < 0) contentLength = 1000000;
-            if (pb_ != null) {
-              pb_.setMaximum(contentLength);
-              pb_.setString(url_.toString());
-            }
-		     
-            String strSuffix = null;
-            try {
-              // if there's a filename specified
-              String sContentDisposition = cnxn.getHeaderField("Content-Disposition");
-              if (sContentDisposition != null) {
-                // try for filename*= parameter
-                MessageFormat msgContentDisposition 
-                  = new MessageFormat("attachment; filename*={0}; filename={1}");
-                try { 
-                  Object[] aFileName = msgContentDisposition.parse(
-                    sContentDisposition);
-                  strSuffix = "-" + aFileName[0].toString()
-                    // replace any enclosing quotes
-                    .replaceAll("^\"","").replaceAll("\"$","");
-                } catch(Throwable t) { // try other way around
-                  msgContentDisposition 
-                    = new MessageFormat("attachment; filename={1}; filename*={0}");
-                  try { 
-                    Object[] aFileName = msgContentDisposition.parse(
-                      sContentDisposition);
-                    strSuffix = "-" + aFileName[0].toString()
-                      // replace any enclosing quotes
-                      .replaceAll("^\"","").replaceAll("\"$","");
-                  } catch(Throwable t2) { // no filename*= parameter
-                    // try for just filename= parameter
-                    msgContentDisposition = new MessageFormat("attachment; filename={0}");
-                    try {
-                      Object[] aFileName = msgContentDisposition.parse(sContentDisposition);
-                      strSuffix = "-" + aFileName[0].toString()
-                        // replace any eclosing quotes
-                        .replaceAll("^\"","").replaceAll("\"$","");
-                    } catch(Throwable t3) {
-                    }
+                String error = null;
+                try {
+                  if (bCache) {
+                    // it may have been published between looking for it and getting here
+                    localFile_ = filesAlreadyDownloaded.getFile(key);
                   }
+                  if (localFile_ == null || !localFile_.exists()) {
+                    if (pb_ != null) transfer.attach(pb_);
+                    localFile_ = download(transfer);
+                  }
+                } catch(Exception exception) {
+                  localFile_ = null;
+                  error = exception.getMessage();
+                  throw exception;
+                } finally {
+                  // stop sharing it before it finishes, so that anyone retrying starts afresh
+                  if (bCache) transfers.remove(key, transfer);
+                  transfer.finish(localFile_, error);
                 }
               }
-              if (strSuffix == null) {
-                // deduce suffix from file name
-                int iLastSlash = url_.getPath().lastIndexOf('/');
-                if (iLastSlash >= 0) {
-                  strSuffix = "-" + url_.getPath().substring(iLastSlash+1);
-                }
-              }
-              if (strSuffix == null) {
-                // deduce suffix from mime type 
-                strSuffix = "." + cnxn.getContentType().substring(
-                  cnxn.getContentType().lastIndexOf("/") + 1);
-                // if it's x-wav, make it wav, etc.
-                strSuffix = "." + strSuffix.substring(
-                  strSuffix.lastIndexOf("-") + 1);
-              }
-            }
-            catch(Exception exception) {
-            }
-            if (strSuffix == null) strSuffix = sDefaultSuffix;
-            // replace any URL encoding '%'s
-            strSuffix = URLDecoder.decode(strSuffix, "UTF-8");
-            if (getDowncaseExtensions()) {
-              int iExtensionStarts = strSuffix.lastIndexOf('.');
-              if (iExtensionStarts > 0) {
-                strSuffix = strSuffix.substring(0, iExtensionStarts)
-                  + strSuffix.substring(iExtensionStarts).toLowerCase();
-              }
-            }
-		     
-            // create a temporary file we know will be deleted
-            localFile_ = filesAlreadyDownloaded.createTempFile(
-              url_.toString(), "000", strSuffix);
-            localFile_.deleteOnExit();		  
-		     
-            InputStream is = cnxn.getInputStream();
-            FileOutputStream os = new FileOutputStream(localFile_);
-            byte [] chunk = new byte[chunkSize];
-            for(int numBytes = is.read(chunk);
-                numBytes >= 0; 
-                numBytes = is.read(chunk)) {
-              os.write(chunk, 0, numBytes);
-              if (pb_ != null) pb_.setValue(pb_.getValue() + numBytes);
-            } // next chunk
-            os.close();
-            is.close();
+            } // next attempt
           } // not already downloaded
 		  
           if (pb_ != null) {
-            pb_.setValue(pb_.getMaximum());
             pb_.setString(localFile_.getPath());
+            pb_.setValue(pb_.getMaximum());
           }
         } catch(Exception exception) {
           if (messageHandler_ != null) messageHandler_.error(exception.getMessage());
@@ -372,8 +359,8 @@ public class FileDownloader extends Thread {
           if (pb_ != null) {
             pb_.setString(exception.getMessage());
           }
-          if (localFile_ != null) localFile_.delete();
         } finally {
+          if (pb_ != null) pb_.finished();
           notifyAll();
         }
       } // synchronized
@@ -382,12 +369,128 @@ public class FileDownloader extends Thread {
     }
   } // end of run()
    
+  /**
+   * Downloads the file, via a part file that's published to the store once it's complete.
+   * @param progress Indicator for the progress of the transfer.
+   * @return The downloaded file.
+   * @throws Exception If the file could not be downloaded.
+   */
+  private File download(IProgressIndicator progress) throws Exception {
+      URLConnection cnxn = openConnection(url_);
+      if (cnxn == null) {
+        if (lastError != null) {
+          throw new Exception(lastError);
+        } else {
+          throw new Exception("Could not retrieve: " + url_);
+        }
+      }
+      int contentLength = cnxn.getContentLength();
+      if (contentLength < 0) contentLength = 1000000;
+      progress.setMaximum(contentLength);
+      progress.setString(url_.toString());
+		     
+      String strSuffix = null;
+      try {
+        // if there's a filename specified
+        String sContentDisposition = cnxn.getHeaderField("Content-Disposition");
+        if (sContentDisposition != null) {
+          // try for filename*= parameter
+          MessageFormat msgContentDisposition 
+            = new MessageFormat("attachment; filename*={0}; filename={1}");
+          try { 
+            Object[] aFileName = msgContentDisposition.parse(
+              sContentDisposition);
+            strSuffix = "-" + aFileName[0].toString()
+              // replace any enclosing quotes
+              .replaceAll("^\"","").replaceAll("\"$","");
+          } catch(Throwable t) { // try other way around
+            msgContentDisposition 
+              = new MessageFormat("attachment; filename={1}; filename*={0}");
+            try { 
+              Object[] aFileName = msgContentDisposition.parse(
+                sContentDisposition);
+              strSuffix = "-" + aFileName[0].toString()
+                // replace any enclosing quotes
+                .replaceAll("^\"","").replaceAll("\"$","");
+            } catch(Throwable t2) { // no filename*= parameter
+              // try for just filename= parameter
+              msgContentDisposition = new MessageFormat("attachment; filename={0}");
+              try {
+                Object[] aFileName = msgContentDisposition.parse(sContentDisposition);
+                strSuffix = "-" + aFileName[0].toString()
+                  // replace any eclosing quotes
+                  .replaceAll("^\"","").replaceAll("\"$","");
+              } catch(Throwable t3) {
+              }
+            }
+          }
+        }
+        if (strSuffix == null) {
+          // deduce suffix from file name
+          int iLastSlash = url_.getPath().lastIndexOf('/');
+          if (iLastSlash >= 0) {
+            strSuffix = "-" + url_.getPath().substring(iLastSlash+1);
+          }
+        }
+        if (strSuffix == null) {
+          // deduce suffix from mime type 
+          strSuffix = "." + cnxn.getContentType().substring(
+            cnxn.getContentType().lastIndexOf("/") + 1);
+          // if it's x-wav, make it wav, etc.
+          strSuffix = "." + strSuffix.substring(
+            strSuffix.lastIndexOf("-") + 1);
+        }
+      }
+      catch(Exception exception) {
+      }
+      if (strSuffix == null) strSuffix = sDefaultSuffix;
+      // replace any URL encoding '%'s
+      strSuffix = URLDecoder.decode(strSuffix, "UTF-8");
+      if (getDowncaseExtensions()) {
+        int iExtensionStarts = strSuffix.lastIndexOf('.');
+        if (iExtensionStarts > 0) {
+          strSuffix = strSuffix.substring(0, iExtensionStarts)
+            + strSuffix.substring(iExtensionStarts).toLowerCase();
+        }
+      }
+		     
+      // write to a part file, which isn't in the store until it's complete
+      File part = filesAlreadyDownloaded.createPartFile("000", strSuffix);
+      try {
+        InputStream is = cnxn.getInputStream();
+        try {
+          FileOutputStream os = new FileOutputStream(part);
+          try {
+            byte [] chunk = new byte[chunkSize];
+            int bytesSoFar = 0;
+            for(int numBytes = is.read(chunk);
+                numBytes >= 0; 
+                numBytes = is.read(chunk)) {
+              os.write(chunk, 0, numBytes);
+              bytesSoFar += numBytes;
+              // the progress indicator decides how often to actually report progress
+              progress.setValue(bytesSoFar);
+            } // next chunk
+          } finally {
+            os.close();
+          }
+        } finally {
+          is.close();
+        }
+        // only now can anyone else see it
+        return filesAlreadyDownloaded.publishFile(url_.toString(), part);
+      } catch(Exception exception) {
+        part.delete();
+        throw exception;
+      }
+  } // end of download()
+
   /**
    * Opens a connection to the given URL.  If the connection requires a username/password, 
-   * the user is asked to provide it.
+   * the user is asked to provide it, unless {@link #getPromptForLogin()} is false.
    * @param url An HTTP URL.
    * @return A connection to the URL, or null if the user cancels out of entering a 
-   * username/password.
+   * username/password, or one is required and {@link #getPromptForLogin()} is false.
    * @throws Exception
    */
   public URLConnection openConnection(URL url) throws Exception {
@@ -418,6 +521,10 @@ public class FileDownloader extends Thread {
         }
 	    
         // need a new authorization
+        if (!bPromptForLogin) {
+          setLastError("Login required: " + url);
+          return null;
+        }
         JPasswordField txtPassword = new JPasswordField();
         JTextField txtUsername = new JTextField();
         JButton btnOK = new JButton("Login");
@@ -511,4 +618,86 @@ public class FileDownloader extends Thread {
     return filesAlreadyDownloaded.getSubdirectory();
   } // end of getDownloadDir()
 
+  /**
+   * A download in progress, which any number of downloaders of the same URL can attach
+   * their progress indicators to, and wait for.
+   */
+  private static class Transfer implements IProgressIndicator {
+    private final boolean bPromptForLogin;
+    private ArrayList<IProgressIndicator> indicators = new ArrayList<IProgressIndicator>();
+    private int maximum = 0;
+    private int value = 0;
+    private String string = null;
+    private boolean finished = false;
+    private File file;
+    private String error;
+
+    /**
+     * Constructor.
+     * @param promptForLogin Whether the downloader doing the transfer can ask the user to
+     * log in.
+     */
+    public Transfer(boolean promptForLogin) {
+      bPromptForLogin = promptForLogin;
+    } // end of constructor
+
+    /**
+     * Whether the downloader doing the transfer can ask the user to log in.
+     * @return true if the downloader can ask the user to log in, false otherwise.
+     */
+    public boolean getPromptForLogin() { return bPromptForLogin; }
+
+    /**
+     * Attaches a progress indicator, which is brought up to date and then receives all
+     * further progress.
+     * @param indicator The indicator to attach.
+     */
+    public synchronized void attach(IProgressIndicator indicator) {
+      if (maximum > 0) indicator.setMaximum(maximum);
+      if (string != null) indicator.setString(string);
+      if (value > 0) indicator.setValue(value);
+      indicators.add(indicator);
+    } // end of attach()
+
+    public synchronized void setMaximum(int max) {
+      maximum = max;
+      for (IProgressIndicator indicator : indicators) indicator.setMaximum(max);
+    }
+    public synchronized void setValue(int progress) {
+      value = progress;
+      for (IProgressIndicator indicator : indicators) indicator.setValue(progress);
+    }
+    public synchronized void setString(String s) {
+      string = s;
+      for (IProgressIndicator indicator : indicators) indicator.setString(s);
+    }
+    public synchronized int getMaximum() { return maximum; }
+    public synchronized int getValue() { return value; }
+    public synchronized String getString() { return string; }
+
+    /**
+     * Marks the transfer as finished, and wakes everyone waiting for it.
+     * @param file The downloaded file, or null if the download failed.
+     * @param error The reason the download failed, if it did.
+     */
+    public synchronized void finish(File file, String error) {
+      this.file = file;
+      this.error = error;
+      finished = true;
+      indicators.clear();
+      notifyAll();
+    } // end of finish()
+
+    /**
+     * Waits for the transfer to finish.
+     * @return The downloaded file.
+     * @throws Exception If the download failed.
+     */
+    public synchronized File await() throws Exception {
+      while (!finished) wait();
+      if (file == null) throw new Exception(error != null ? error : "Download failed");
+      return file;
+    } // end of await()
+  } // end of class Transfer
+
 } // end of class FileDownloader
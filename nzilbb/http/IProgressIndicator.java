@@ -63,4 +63,12 @@ public interface IProgressIndicator
     */
    public String getString();
 
+   /**
+    * Called once, when the transfer has finished, whether or not it succeeded. The
+    * default implementation does nothing.
+    */
+   public default void finished()
+   {
+   }
+
 } // end of class IProgressIndicator
@@ -23,18 +23,43 @@
 package nzilbb.http;
 
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Stores a collection of cached files and deletes them when garbage-collected.  Sometimes files can't be deleted at that time (because other processes or native libraries have them open) so it also deletes leftover files from any old sessions.
+ * Stores a collection of cached files and deletes them when closed, or when the JVM shuts down.  Sometimes files can't be deleted at that time (because other processes or native libraries have them open) so it also deletes leftover files from any old sessions.
+ * <p>The collection can be used from any number of threads at once.
  * @author Robert Fromont robert.fromont@canterbury.ac.nz
  */
 public class TemporaryFileStore
+   implements Closeable
 {
    // Attributes:
    
+   /** How many old files are deleted at a time by the background sweep, before it pauses */
+   public static final int SWEEP_BATCH_SIZE = 100;
+   
+   /** How long the background sweep pauses between batches, in milliseconds */
+   public static final long SWEEP_PAUSE_MILLIS = 20;
+   
+   /** Suffix of files that are still being written, and so are not yet in the collection */
+   public static final String PART_SUFFIX = ".part";
+   
    /** Collection of temporary files created by this object */
-   protected Hashtable<Object,File> hFilesAlreadyDownloaded = new Hashtable<Object,File>();
+   protected ConcurrentHashMap<Object,File> hFilesAlreadyDownloaded = new ConcurrentHashMap<Object,File>();
+   
+   /**
+    * Deletes all files when the JVM shuts down, unless the store has been closed first.
+    * The hook keeps the store reachable until then, so stores should be closed when they're
+    * no longer needed.
+    */
+   private Thread shutdownHook = new Thread(new Runnable() {
+	 public void run() { deleteAllFiles(); } }, "TemporaryFileStore");
    
    /** The directory where temporary files are kept.  Determined by the <i>java.io.tmpdir</i> system property and the value of {@link #getSubdirectoryName()} */
    protected File fSubdirectory;
@@ -135,8 +160,14 @@ public class TemporaryFileStore
 	 }
 	 
 	 System.err.println("Temporary files stored in " + fSubdirectory);
-	 // delete any leftorver files in it
-	 deleteOldFiles();
+	 Runtime.getRuntime().addShutdownHook(shutdownHook);
+	 // delete any leftover files in it, without holding up the caller
+	 Thread sweeper = new Thread(new Runnable() {
+	       public void run() { deleteOldFiles(SWEEP_PAUSE_MILLIS); } },
+	    "TemporaryFileStore sweep");
+	 sweeper.setDaemon(true);
+	 sweeper.setPriority(Thread.MIN_PRIORITY);
+	 sweeper.start();
       }
       catch (Throwable t)
       {
@@ -183,6 +214,47 @@ public class TemporaryFileStore
       return createTempFile(sName, "___", sName);
    }
    
+   /**
+    * Creates an empty file in the default temporary-file directory, using the given prefix and suffix to generate its name, but doesn't add it to the collection. The file's name ends with {@link #PART_SUFFIX}. Once it has been fully written, it can be added to the collection with {@link #publishFile(Object,File)}, so that nobody can get the file from the collection before it's complete. deleteOnExit() is also invoked for the new file.
+    * @param sPrefix - The prefix string to be used in generating the file's name; must be at least three characters long
+    * @param sSuffix - The suffix string to be used in generating the file's name, before {@link #PART_SUFFIX}
+    */
+   public File createPartFile(String sPrefix, String sSuffix)
+      throws IOException
+   {
+      File file = File.createTempFile(sPrefix, sSuffix + PART_SUFFIX, fSubdirectory);
+      file.deleteOnExit();
+      return file;
+   } // end of createPartFile()
+   
+   /**
+    * Renames a file created by {@link #createPartFile(String,String)} to its final name, dropping {@link #PART_SUFFIX}, and calls putFile() for it. The file is renamed atomically where the file system allows, so the final name never refers to a partially written file.
+    * @param oKey
+    * @param part The fully written file.
+    * @return The file with its final name.
+    */
+   public File publishFile(Object oKey, File part)
+      throws IOException
+   {
+      String sName = part.getName();
+      if (sName.endsWith(PART_SUFFIX))
+      {
+	 sName = sName.substring(0, sName.length() - PART_SUFFIX.length());
+      }
+      File file = new File(part.getParentFile(), sName);
+      try
+      {
+	 Files.move(part.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException exception)
+      {
+	 Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      file.deleteOnExit();
+      putFile(oKey, file);
+      return file;
+   } // end of publishFile()
+   
    /**
     * Adds a file to the collection.
     * @param oKey
@@ -198,11 +270,12 @@ public class TemporaryFileStore
     */
    public void deleteAllFiles()
    {
-      // delete temporary files
-      Enumeration<File> enFiles = hFilesAlreadyDownloaded.elements();
-      while (enFiles.hasMoreElements())
+      // delete temporary files, removing each entry as we go, so that files added by other
+      // threads meanwhile are either deleted or left in the collection, but not lost
+      for (Map.Entry<Object,File> entry : hFilesAlreadyDownloaded.entrySet())
       {
-	 File file = enFiles.nextElement();
+	 File file = entry.getValue();
+	 if (!hFilesAlreadyDownloaded.remove(entry.getKey(), file)) continue; // replaced
 	 if (!file.delete())
 	 {
 	    System.err.println("TemporaryFileStore: Could not delete file " + file.getPath());
@@ -212,39 +285,84 @@ public class TemporaryFileStore
 	    System.err.println("TemporaryFileStore: Deleted file " + file.getPath());
 	 }
       }
-      hFilesAlreadyDownloaded.clear();
    } // end of deleteAllFiles()
    
    /**
     * Deletes old files - those created by some previous instance of this class with the same {@link #getSubdirectoryName()} as this one.  How old the file has to be to count as old is determined by the value of {@link #getOldFileHours()}
+    * <p>This is done in the background when the store is created, so it's not usually necessary to call this method.
     */
    public void deleteOldFiles()
    {
-      // identify old files
-      File[] files = fSubdirectory.listFiles(new FileFilter()
+      deleteOldFiles(0);
+   } // end of deleteOldFiles()
+   
+   /**
+    * Deletes old files, walking the directory in batches of {@link #SWEEP_BATCH_SIZE} files so that the whole directory listing is never held in memory.
+    * @param lPauseMillis How long to pause between batches, so that a sweep of a large directory doesn't compete with downloads, or 0 for no pause.
+    */
+   protected void deleteOldFiles(long lPauseMillis)
+   {
+      long lCutoff = System.currentTimeMillis() - (getOldFileHours() * 60L * 60L * 1000L);
+      long lDeleted = 0;
+      try
+      {
+	 DirectoryStream<Path> directory = Files.newDirectoryStream(fSubdirectory.toPath());
+	 try
 	 {
-	    public  boolean accept(File file) 
+	    int iBatch = 0;
+	    for (Path path : directory)
 	    {
-	       return (file.lastModified() < new Date().getTime() - (getOldFileHours() * 60 * 60 * 1000));
-	    }
-	 });
-      // delete them
-      for (int i = 0; i < files.length; i++)
-      {
-	 if (!files[i].delete())
+	       try
+	       {
+		  if (Files.getLastModifiedTime(path).toMillis() < lCutoff)
+		  {
+		     Files.delete(path);
+		     lDeleted++;
+		  }
+	       }
+	       catch (IOException exception)
+	       {
+		  System.err.println("Could not delete old temporary file " + path);
+	       }
+	       if (++iBatch == SWEEP_BATCH_SIZE)
+	       {
+		  iBatch = 0;
+		  if (lPauseMillis > 0) Thread.sleep(lPauseMillis);
+	       }
+	    } // next file
+	 }
+	 finally
 	 {
-	    System.err.println("Could not delete old temporary file "
-			       + files[i].getPath());
+	    directory.close();
 	 }
       }
-   } // end of deleteAllFiles()   
+      catch (InterruptedException exception)
+      { // stop sweeping
+      }
+      catch (Throwable t)
+      {
+	 System.err.println("Cannot delete old files in " + fSubdirectory + ": " + t);
+      }
+      if (lDeleted > 0)
+      {
+	 System.err.println("Deleted " + lDeleted + " old temporary files");
+      }
+   } // end of deleteOldFiles()
    
    /**
-    * Called by the garbage collector
+    * Deletes all files, and stops them from being deleted again when the JVM shuts down.
     */
-   protected void finalize()
+   public void close()
    {
+      try
+      {
+	 Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      }
+      catch (IllegalStateException exception)
+      { // already shutting down, so the hook is deleting them
+	 return;
+      }
       deleteAllFiles();
-   } // end of finalize()
+   } // end of close()
    
 } // end of class TemporaryFileStore
@@ -0,0 +1,501 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous, level-based log.
+ * <p>Log calls only format the message if the level is enabled (messages can be passed as a
+ * {@link Supplier} so that even string concatenation is skipped), and then simply put the
+ * message in a fixed-size ring buffer. A low-priority background thread writes the messages
+ * out, so logging never blocks the thread handling messages on disk or pipe I/O. If the ring
+ * buffer is full, messages are dropped (and counted) rather than making the caller wait.
+ * <p>If a log file is set with {@link #setFile(File)}, messages are written there, and the
+ * file is rotated when it reaches {@link #getMaxFileSize()} bytes. Errors are always also
+ * written to stderr. With no log file, all messages go to stderr.
+ * <p>The time spent by callers in log calls is measured; see {@link #getCallCount()} and
+ * {@link #getCallNanos()}.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class AsyncLog
+{
+   /** Log levels, from most to least important */
+   public enum Level { ERROR, WARNING, INFO, DEBUG }
+
+   // Attributes:
+
+   /** Ring buffer entry times */
+   private long[] times;
+   /** Ring buffer entry levels */
+   private Level[] levels;
+   /** Ring buffer entry messages */
+   private String[] messages;
+   /** Sequence number of the next entry to add */
+   private long head = 0;
+   /** Sequence number of the next entry to write */
+   private long tail = 0;
+   /** Sequence number of the next entry that hasn't been written out yet */
+   private long written = 0;
+
+   /** Background thread that writes entries out */
+   private Thread writerThread;
+   /** Whether the log has been closed */
+   private boolean closed = false;
+
+   /** Current log file writer - only used by the writer thread */
+   private Writer fileWriter;
+   /** The file {@link #fileWriter} is writing to */
+   private File openFile;
+   /** Number of bytes written to the current log file */
+   private long fileSize;
+   /** Format for timestamps - only used by the writer thread */
+   private SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+   /** Number of log calls that were enabled */
+   private AtomicLong callCount = new AtomicLong();
+   /** Total time spent by callers in enabled log calls */
+   private AtomicLong callNanos = new AtomicLong();
+   /** Number of messages dropped because the ring buffer was full */
+   private AtomicLong dropped = new AtomicLong();
+
+   /**
+    * The least important level that is logged.
+    * @see #getLevel()
+    * @see #setLevel(Level)
+    */
+   protected volatile Level level = Level.INFO;
+   /**
+    * Getter for {@link #level}: The least important level that is logged.
+    * @return The least important level that is logged.
+    */
+   public Level getLevel() { return level; }
+   /**
+    * Setter for {@link #level}: The least important level that is logged.
+    * @param newLevel The least important level that is logged.
+    */
+   public AsyncLog setLevel(Level newLevel) { level = newLevel; return this; }
+
+   /**
+    * Log file, or null to log to stderr only.
+    * @see #getFile()
+    * @see #setFile(File)
+    */
+   protected volatile File file;
+   /**
+    * Getter for {@link #file}: Log file, or null to log to stderr only.
+    * @return Log file, or null to log to stderr only.
+    */
+   public File getFile() { return file; }
+   /**
+    * Setter for {@link #file}: Log file, or null to log to stderr only.
+    * @param newFile Log file, or null to log to stderr only.
+    */
+   public AsyncLog setFile(File newFile) { file = newFile; return this; }
+
+   /**
+    * Size in bytes at which the log file is rotated. The default is 1 MB.
+    * @see #getMaxFileSize()
+    * @see #setMaxFileSize(long)
+    */
+   protected long maxFileSize = 1024 * 1024;
+   /**
+    * Getter for {@link #maxFileSize}: Size in bytes at which the log file is rotated.
+    * @return Size in bytes at which the log file is rotated.
+    */
+   public long getMaxFileSize() { return maxFileSize; }
+   /**
+    * Setter for {@link #maxFileSize}: Size in bytes at which the log file is rotated.
+    * @param newMaxFileSize Size in bytes at which the log file is rotated.
+    */
+   public AsyncLog setMaxFileSize(long newMaxFileSize) { maxFileSize = newMaxFileSize; return this; }
+
+   /**
+    * Number of old log files to keep. The default is 3.
+    * @see #getMaxOldFiles()
+    * @see #setMaxOldFiles(int)
+    */
+   protected int maxOldFiles = 3;
+   /**
+    * Getter for {@link #maxOldFiles}: Number of old log files to keep.
+    * @return Number of old log files to keep.
+    */
+   public int getMaxOldFiles() { return maxOldFiles; }
+   /**
+    * Setter for {@link #maxOldFiles}: Number of old log files to keep.
+    * @param newMaxOldFiles Number of old log files to keep.
+    */
+   public AsyncLog setMaxOldFiles(int newMaxOldFiles) { maxOldFiles = newMaxOldFiles; return this; }
+
+   /**
+    * Where errors, and all messages if there's no log file, are written.
+    * @see #getConsole()
+    * @see #setConsole(PrintStream)
+    */
+   protected PrintStream console = System.err;
+   /**
+    * Getter for {@link #console}: Where errors, and all messages if there's no log file, are written.
+    * @return Where errors, and all messages if there's no log file, are written.
+    */
+   public PrintStream getConsole() { return console; }
+   /**
+    * Setter for {@link #console}: Where errors, and all messages if there's no log file, are written.
+    * @param newConsole Where errors, and all messages if there's no log file, are written.
+    */
+   public AsyncLog setConsole(PrintStream newConsole) { console = newConsole; return this; }
+
+   /**
+    * Getter for the number of enabled log calls made.
+    * @return The number of enabled log calls made.
+    */
+   public long getCallCount() { return callCount.get(); }
+
+   /**
+    * Getter for the total number of nanoseconds callers have spent in enabled log calls.
+    * @return The total number of nanoseconds callers have spent in enabled log calls.
+    */
+   public long getCallNanos() { return callNanos.get(); }
+
+   /**
+    * Getter for the number of messages dropped because the buffer was full.
+    * @return The number of messages dropped because the buffer was full.
+    */
+   public long getDropped() { return dropped.get(); }
+
+   /**
+    * Constructor, with a buffer of 1024 messages.
+    */
+   public AsyncLog()
+   {
+      this(1024);
+   } // end of constructor
+
+   /**
+    * Constructor
+    * @param capacity The number of messages that can be buffered.
+    */
+   public AsyncLog(int capacity)
+   {
+      times = new long[capacity];
+      levels = new Level[capacity];
+      messages = new String[capacity];
+      writerThread = new Thread(new Runnable() { public void run() { writeEntries(); } },
+				"AsyncLog");
+      writerThread.setDaemon(true);
+      writerThread.setPriority(Thread.MIN_PRIORITY);
+      writerThread.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+	    public void run() { close(); } }));
+   } // end of constructor
+
+   /**
+    * Determines whether messages of the given level are logged.
+    * @param messageLevel The level.
+    * @return true if messages of the given level are logged, false otherwise.
+    */
+   public boolean isEnabled(Level messageLevel)
+   {
+      return messageLevel.ordinal() <= level.ordinal();
+   } // end of isEnabled()
+
+   /**
+    * Logs a message.
+    * @param messageLevel The message's level.
+    * @param message The message.
+    */
+   public void log(Level messageLevel, String message)
+   {
+      if (!isEnabled(messageLevel)) return;
+      long start = System.nanoTime();
+      enqueue(messageLevel, message);
+      callNanos.addAndGet(System.nanoTime() - start);
+      callCount.incrementAndGet();
+   } // end of log()
+
+   /**
+    * Logs a message, which is only constructed if the level is enabled.
+    * @param messageLevel The message's level.
+    * @param message Supplier for the message.
+    */
+   public void log(Level messageLevel, Supplier<String> message)
+   {
+      if (!isEnabled(messageLevel)) return;
+      long start = System.nanoTime();
+      enqueue(messageLevel, message.get());
+      callNanos.addAndGet(System.nanoTime() - start);
+      callCount.incrementAndGet();
+   } // end of log()
+
+   /**
+    * Logs an error.
+    * @param message The message.
+    */
+   public void error(String message) { log(Level.ERROR, message); }
+
+   /**
+    * Logs a warning.
+    * @param message The message.
+    */
+   public void warning(String message) { log(Level.WARNING, message); }
+
+   /**
+    * Logs an informational message.
+    * @param message The message.
+    */
+   public void info(String message) { log(Level.INFO, message); }
+
+   /**
+    * Logs a debug message.
+    * @param message The message.
+    */
+   public void debug(String message) { log(Level.DEBUG, message); }
+
+   /**
+    * Logs a debug message, which is only constructed if debug messages are enabled.
+    * @param message Supplier for the message.
+    */
+   public void debug(Supplier<String> message) { log(Level.DEBUG, message); }
+
+   /**
+    * Adds an entry to the ring buffer.
+    * @param messageLevel The message's level.
+    * @param message The message.
+    */
+   private void enqueue(Level messageLevel, String message)
+   {
+      synchronized (this)
+      {
+	 if (closed)
+	 { // no writer thread any more
+	    console.println(message);
+	    return;
+	 }
+	 if (head - tail >= messages.length)
+	 { // full
+	    dropped.incrementAndGet();
+	    return;
+	 }
+	 int i = (int)(head % messages.length);
+	 times[i] = System.currentTimeMillis();
+	 levels[i] = messageLevel;
+	 messages[i] = message;
+	 head++;
+	 notifyAll();
+      }
+   } // end of enqueue()
+
+   /**
+    * Waits until all messages buffered so far have been written.
+    */
+   public void flush()
+   {
+      synchronized (this)
+      {
+	 long target = head;
+	 while (written < target && writerThread.isAlive())
+	 {
+	    try { wait(100); } catch(InterruptedException x) { return; }
+	 }
+      }
+   } // end of flush()
+
+   /**
+    * Writes out any buffered messages and stops the background thread.
+    */
+   public void close()
+   {
+      synchronized (this)
+      {
+	 if (closed) return;
+	 if (callCount.get() > 0)
+	 {
+	    enqueue(Level.INFO, "Log: " + callCount.get() + " messages, "
+		    + (callNanos.get() / callCount.get()) + "ns per message, "
+		    + dropped.get() + " dropped");
+	 }
+      }
+      flush();
+      synchronized (this)
+      {
+	 closed = true;
+	 notifyAll();
+      }
+      try { writerThread.join(1000); } catch(InterruptedException x) {}
+   } // end of close()
+
+   /**
+    * Background thread loop: writes out buffered entries.
+    */
+   private void writeEntries()
+   {
+      int capacity = messages.length;
+      long[] batchTimes = new long[capacity];
+      Level[] batchLevels = new Level[capacity];
+      String[] batchMessages = new String[capacity];
+      while (true)
+      {
+	 int count = 0;
+	 long batchEnd;
+	 synchronized (this)
+	 {
+	    while (tail == head && !closed)
+	    {
+	       try { wait(); } catch(InterruptedException x) {}
+	    }
+	    if (tail == head) break; // closed
+	    // take everything that's there
+	    while (tail < head)
+	    {
+	       int i = (int)(tail % capacity);
+	       batchTimes[count] = times[i];
+	       batchLevels[count] = levels[i];
+	       batchMessages[count] = messages[i];
+	       messages[i] = null;
+	       count++;
+	       tail++;
+	    }
+	    batchEnd = tail;
+	 }
+	 for (int b = 0; b < count; b++)
+	 {
+	    write(batchTimes[b], batchLevels[b], batchMessages[b]);
+	    batchMessages[b] = null;
+	 }
+	 try
+	 {
+	    if (fileWriter != null) fileWriter.flush();
+	 }
+	 catch(IOException exception)
+	 {
+	    console.println("Could not write log: " + exception);
+	    closeFile();
+	 }
+	 console.flush();
+	 synchronized (this)
+	 { // for flush()
+	    written = batchEnd;
+	    notifyAll();
+	 }
+      } // next batch
+      closeFile();
+   } // end of writeEntries()
+
+   /**
+    * Writes a single entry - called only by the background thread.
+    * @param time When the entry was logged.
+    * @param messageLevel The entry's level.
+    * @param message The message.
+    */
+   private void write(long time, Level messageLevel, String message)
+   {
+      File file = this.file;
+      if (file == null || messageLevel == Level.ERROR)
+      {
+	 console.println(message);
+      }
+      if (file != openFile) closeFile(); // file has changed
+      if (file != null)
+      {
+	 try
+	 {
+	    if (fileWriter == null) openFile(file);
+	    String line = timestampFormat.format(new Date(time))
+	       + " " + messageLevel + " " + message + "\n";
+	    fileWriter.write(line);
+	    fileSize += line.length();
+	    if (fileSize >= maxFileSize) rotate();
+	 }
+	 catch(IOException exception)
+	 {
+	    console.println("Could not write log: " + exception);
+	    console.println(message);
+	    closeFile();
+	 }
+      }
+   } // end of write()
+
+   /**
+    * Opens the log file for appending.
+    * @param file The log file.
+    * @throws IOException
+    */
+   private void openFile(File file)
+      throws IOException
+   {
+      openFile = file;
+      fileSize = file.exists()?file.length():0;
+      fileWriter = new BufferedWriter(new OutputStreamWriter(
+					 new FileOutputStream(file, true), StandardCharsets.UTF_8));
+   } // end of openFile()
+
+   /**
+    * Closes the log file, if it's open.
+    */
+   private void closeFile()
+   {
+      if (fileWriter != null)
+      {
+	 try { fileWriter.close(); } catch(IOException x) {}
+	 fileWriter = null;
+      }
+      openFile = null;
+   } // end of closeFile()
+
+   /**
+    * Renames the log file, and older log files, so that a new log file is started,
+    * e.g. jsendpraat.log becomes jsendpraat.log.1, jsendpraat.log.1 becomes
+    * jsendpraat.log.2, etc.
+    */
+   private void rotate()
+   {
+      File file = openFile;
+      closeFile();
+      File oldest = new File(file.getPath() + "." + maxOldFiles);
+      oldest.delete();
+      for (int f = maxOldFiles - 1; f >= 1; f--)
+      {
+	 new File(file.getPath() + "." + f).renameTo(new File(file.getPath() + "." + (f + 1)));
+      }
+      if (maxOldFiles > 0)
+      {
+	 file.renameTo(new File(file.getPath() + ".1"));
+      }
+      else
+      {
+	 file.delete();
+      }
+      fileSize = 0;
+   } // end of rotate()
+
+} // end of class AsyncLog
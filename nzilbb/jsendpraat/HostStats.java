@@ -0,0 +1,254 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Performance counters and latency histograms for the native messaging host, which are
+ * returned in reply to a "stats" message.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class HostStats
+{
+   // Attributes:
+
+   /** When these stats started being collected */
+   private long started = System.currentTimeMillis();
+
+   /** Message handling times, keyed on message type */
+   private ConcurrentHashMap<String,LatencyHistogram> messageTimes
+   = new ConcurrentHashMap<String,LatencyHistogram>();
+   /** Number of messages currently being handled */
+   private AtomicInteger messagesInFlight = new AtomicInteger();
+
+   /** Download times, not including cache hits */
+   private LatencyHistogram downloadTimes = new LatencyHistogram();
+   /** Number of bytes downloaded */
+   private AtomicLong downloadBytes = new AtomicLong();
+   /** Number of requested files that had already been downloaded */
+   private AtomicLong cacheHits = new AtomicLong();
+   /** Number of requested files that had not already been downloaded */
+   private AtomicLong cacheMisses = new AtomicLong();
+   /** Number of downloads currently in progress */
+   private AtomicInteger downloadsInFlight = new AtomicInteger();
+
+   /** Upload times */
+   private LatencyHistogram uploadTimes = new LatencyHistogram();
+   /** Number of HTTP requests made for uploads */
+   private AtomicLong uploadRoundTrips = new AtomicLong();
+   /** Number of uploads currently in progress */
+   private AtomicInteger uploadsInFlight = new AtomicInteger();
+
+   /** Time taken to start "praat --send" processes */
+   private LatencyHistogram praatSendTimes = new LatencyHistogram();
+
+   /** Time between starting Praat and it being ready to receive scripts */
+   private LatencyHistogram praatStartTimes = new LatencyHistogram();
+
+   /** Number of times Praat was launched ahead of the first script */
+   private AtomicLong praatPrelaunches = new AtomicLong();
+   /** Number of times Praat wasn't launched ahead of the first script, as it was already running */
+   private AtomicLong praatAlreadyRunning = new AtomicLong();
+   /** Praat start-up time taken off the first script by launching Praat ahead of it */
+   private LatencyHistogram praatStartSavedTimes = new LatencyHistogram();
+
+   /**
+    * Called when a message starts being handled.
+    */
+   public void messageStarted()
+   {
+      messagesInFlight.incrementAndGet();
+   } // end of messageStarted()
+
+   /**
+    * Called when a message has been handled.
+    * @param type The message type, e.g. "sendpraat". This should be one of a fixed set of
+    * types, as a histogram is kept for each one.
+    * @param nanos How long the message took to handle.
+    */
+   public void messageFinished(String type, long nanos)
+   {
+      messagesInFlight.decrementAndGet();
+      LatencyHistogram histogram = messageTimes.get(type);
+      if (histogram == null)
+      {
+	 messageTimes.putIfAbsent(type, new LatencyHistogram());
+	 histogram = messageTimes.get(type);
+      }
+      histogram.recordNanos(nanos);
+   } // end of messageFinished()
+
+   /**
+    * Called when a download starts.
+    */
+   public void downloadStarted()
+   {
+      downloadsInFlight.incrementAndGet();
+   } // end of downloadStarted()
+
+   /**
+    * Called when a download has finished.
+    * @param cacheHit Whether the file had already been downloaded.
+    * @param bytes The number of bytes downloaded.
+    * @param nanos How long the download took.
+    */
+   public void downloadFinished(boolean cacheHit, long bytes, long nanos)
+   {
+      downloadsInFlight.decrementAndGet();
+      if (cacheHit)
+      {
+	 cacheHits.incrementAndGet();
+      }
+      else
+      {
+	 cacheMisses.incrementAndGet();
+	 downloadBytes.addAndGet(bytes);
+	 downloadTimes.recordNanos(nanos);
+      }
+   } // end of downloadFinished()
+
+   /**
+    * Called when an upload starts.
+    */
+   public void uploadStarted()
+   {
+      uploadsInFlight.incrementAndGet();
+   } // end of uploadStarted()
+
+   /**
+    * Called when an upload has finished.
+    * @param roundTrips The number of HTTP requests the upload took.
+    * @param nanos How long the upload took.
+    */
+   public void uploadFinished(int roundTrips, long nanos)
+   {
+      uploadsInFlight.decrementAndGet();
+      uploadRoundTrips.addAndGet(roundTrips);
+      uploadTimes.recordNanos(nanos);
+   } // end of uploadFinished()
+
+   /**
+    * Called when a "praat --send" process has been started.
+    * @param nanos How long it took to start the process.
+    */
+   public void praatSendForked(long nanos)
+   {
+      praatSendTimes.recordNanos(nanos);
+   } // end of praatSendForked()
+
+   /**
+    * Called when Praat has been started.
+    * @param nanos How long it took for Praat to be ready to receive scripts.
+    */
+   public void praatStarted(long nanos)
+   {
+      praatStartTimes.recordNanos(nanos);
+   } // end of praatStarted()
+
+   /**
+    * Called when Praat has been launched ahead of the first script, or it has been found
+    * that it didn't need to be.
+    * @param launched true if Praat was launched, false if it was already running.
+    */
+   public void praatPrelaunched(boolean launched)
+   {
+      if (launched)
+      {
+	 praatPrelaunches.incrementAndGet();
+      }
+      else
+      {
+	 praatAlreadyRunning.incrementAndGet();
+      }
+   } // end of praatPrelaunched()
+
+   /**
+    * Called when the first script is sent to a Praat that was launched ahead of it.
+    * @param nanos How much of Praat's start-up time had already passed when the script
+    * arrived, which the script didn't have to wait for.
+    */
+   public void praatStartSaved(long nanos)
+   {
+      praatStartSavedTimes.recordNanos(nanos);
+   } // end of praatStartSaved()
+
+   /**
+    * Summarises the stats as JSON. All times are in milliseconds.
+    * @return A JSON representation of the stats.
+    */
+   public JSONObject toJSON()
+   {
+      JSONObject json = new JSONObject();
+      json.put("uptime", System.currentTimeMillis() - started);
+
+      JSONObject messages = new JSONObject();
+      for (Map.Entry<String,LatencyHistogram> entry : messageTimes.entrySet())
+      {
+	 messages.put(entry.getKey(), entry.getValue().toJSON());
+      }
+      json.put("messages", messages);
+
+      JSONObject downloads = downloadTimes.toJSON();
+      downloads.put("bytes", downloadBytes.get());
+      long downloadMicros = downloadTimes.getTotal();
+      if (downloadMicros > 0)
+      {
+	 downloads.put("bytesPerSecond", downloadBytes.get() * 1000000 / downloadMicros);
+      }
+      long requests = cacheHits.get() + cacheMisses.get();
+      downloads.put("cacheHits", cacheHits.get());
+      if (requests > 0)
+      {
+	 downloads.put("cacheHitRate", (double)cacheHits.get() / requests);
+      }
+      json.put("downloads", downloads);
+
+      JSONObject uploads = uploadTimes.toJSON();
+      uploads.put("roundTrips", uploadRoundTrips.get());
+      json.put("uploads", uploads);
+
+      json.put("praatSend", praatSendTimes.toJSON());
+      json.put("praatStart", praatStartTimes.toJSON());
+      if (praatPrelaunches.get() + praatAlreadyRunning.get() > 0)
+      {
+	 JSONObject prelaunch = new JSONObject();
+	 prelaunch.put("launched", praatPrelaunches.get());
+	 prelaunch.put("alreadyRunning", praatAlreadyRunning.get());
+	 prelaunch.put("saved", praatStartSavedTimes.toJSON());
+	 json.put("praatPrelaunch", prelaunch);
+      }
+
+      JSONObject inFlight = new JSONObject();
+      inFlight.put("messages", messagesInFlight.get());
+      inFlight.put("downloads", downloadsInFlight.get());
+      inFlight.put("uploads", uploadsInFlight.get());
+      json.put("inFlight", inFlight);
+      return json;
+   } // end of toJSON()
+
+} // end of class HostStats
@@ -0,0 +1,179 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.json.JSONObject;
+
+/**
+ * Fixed-memory histogram of latencies, in the style of an HDR histogram.
+ * <p>Values are counted in log-linear buckets: each power of two is divided into 16
+ * sub-buckets, so any recorded value is accurate to within about 6%, using a fixed
+ * array of 960 counters whatever values are recorded. Recording is lock-free and doesn't
+ * allocate, so histograms can be left on all the time.
+ * <p>Latencies are recorded in microseconds.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class LatencyHistogram
+{
+   /** Number of bits of precision below the most significant bit */
+   private static final int SUB_BUCKET_BITS = 4;
+   /** Number of sub-buckets per power of two */
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   /** Total number of buckets */
+   private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+   // Attributes:
+
+   /** Bucket counts */
+   private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+   /** Number of values recorded */
+   private AtomicLong count = new AtomicLong();
+   /** Sum of values recorded */
+   private AtomicLong total = new AtomicLong();
+   /** Smallest value recorded */
+   private AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+   /** Largest value recorded */
+   private AtomicLong max = new AtomicLong(0);
+
+   /**
+    * Getter for the number of values recorded.
+    * @return The number of values recorded.
+    */
+   public long getCount() { return count.get(); }
+
+   /**
+    * Getter for the sum of all values recorded, in microseconds.
+    * @return The sum of all values recorded.
+    */
+   public long getTotal() { return total.get(); }
+
+   /**
+    * Records a latency.
+    * @param micros The latency in microseconds.
+    */
+   public void record(long micros)
+   {
+      if (micros < 0) micros = 0;
+      counts.incrementAndGet(bucket(micros));
+      count.incrementAndGet();
+      total.addAndGet(micros);
+      long m = min.get();
+      while (micros < m && !min.compareAndSet(m, micros)) m = min.get();
+      m = max.get();
+      while (micros > m && !max.compareAndSet(m, micros)) m = max.get();
+   } // end of record()
+
+   /**
+    * Records a latency measured with {@link System#nanoTime()}.
+    * @param nanos The latency in nanoseconds.
+    */
+   public void recordNanos(long nanos)
+   {
+      record(nanos / 1000);
+   } // end of recordNanos()
+
+   /**
+    * Determines the value below which the given percentage of recorded values fall.
+    * @param percentile The percentile, between 0 and 100.
+    * @return The approximate value at the given percentile, or 0 if nothing has been recorded.
+    */
+   public long getValueAtPercentile(double percentile)
+   {
+      long n = count.get();
+      if (n == 0) return 0;
+      long rank = (long)Math.ceil(percentile / 100.0 * n);
+      if (rank < 1) rank = 1;
+      long soFar = 0;
+      for (int b = 0; b < BUCKETS; b++)
+      {
+	 soFar += counts.get(b);
+	 if (soFar >= rank)
+	 { // within this bucket, but no larger than the largest value
+	    return Math.min(midpoint(b), max.get());
+	 }
+      }
+      return max.get();
+   } // end of getValueAtPercentile()
+
+   /**
+    * Summarises the histogram as JSON, with times in milliseconds.
+    * @return A JSON object with "count", "mean", "min", "p50", "p90", "p99" and "max" attributes.
+    */
+   public JSONObject toJSON()
+   {
+      JSONObject json = new JSONObject();
+      long n = count.get();
+      json.put("count", n);
+      if (n > 0)
+      {
+	 json.put("mean", millis(total.get() / n));
+	 json.put("min", millis(min.get()));
+	 json.put("p50", millis(getValueAtPercentile(50)));
+	 json.put("p90", millis(getValueAtPercentile(90)));
+	 json.put("p99", millis(getValueAtPercentile(99)));
+	 json.put("max", millis(max.get()));
+      }
+      return json;
+   } // end of toJSON()
+
+   /**
+    * Converts microseconds to milliseconds.
+    * @param micros
+    * @return The number of milliseconds.
+    */
+   private static double millis(long micros)
+   {
+      return micros / 1000.0;
+   } // end of millis()
+
+   /**
+    * Determines which bucket a value falls into.
+    * @param value A non-negative value.
+    * @return The index of the bucket.
+    */
+   static int bucket(long value)
+   {
+      if (value < SUB_BUCKETS) return (int)value;
+      int msb = 63 - Long.numberOfLeadingZeros(value);
+      int shift = msb - SUB_BUCKET_BITS;
+      int sub = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+      return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+   } // end of bucket()
+
+   /**
+    * Determines the middle of the range of values that fall into the given bucket.
+    * @param bucket The index of the bucket.
+    * @return A representative value for the bucket.
+    */
+   static long midpoint(int bucket)
+   {
+      if (bucket < SUB_BUCKETS) return bucket;
+      int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+      long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+      long low = (1L << (shift + SUB_BUCKET_BITS)) | (sub << shift);
+      return low + ((1L << shift) >> 1);
+   } // end of midpoint()
+
+} // end of class LatencyHistogram
@@ -0,0 +1,314 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONByteWriter;
+import org.json.JSONObject;
+
+/**
+ * Writes JSON messages to the browser using the
+ * <a href="https://developer.chrome.com/extensions/nativeMessaging#native-messaging-host-protocol">Native Messaging protocol</a>.
+ * <p>Each message is serialized as UTF-8 by a {@link JSONByteWriter} directly into a reusable
+ * buffer which has four bytes reserved at the start for the message size, without building
+ * an intermediate String, so the size header and the message body go out in a
+ * single write. Writes are synchronized, so progress events from downloader threads can't
+ * interleave with replies from the message loop. The underlying stream is only flushed by
+ * the last of any concurrent writers, so bursts of messages are flushed once.
+ * <p>If {@link #getZipReplies()} is true, messages larger than {@link #getZipThreshold()}
+ * bytes are compressed using {@link ZipEncoding}, if that makes them smaller.
+ * <p>Messages larger than {@link #MAX_MESSAGE_SIZE} are not sent, as the browser would
+ * reject them and close the connection; an error message is sent instead. Encoding stops
+ * as soon as a message gets too large, so the buffer never grows much beyond that size.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class MessageFrameWriter
+{
+   /** The maximum size of a single message from the host to the browser - 1 MB */
+   public static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+
+   /** Number of bytes in the message size header */
+   private static final int HEADER_SIZE = 4;
+
+   // Attributes:
+
+   /** Stream to write messages to */
+   private OutputStream out;
+
+   /** Buffer the message is encoded into */
+   private FrameBuffer buffer = new FrameBuffer();
+
+   /** UTF-8 serializer writing into {@link #buffer} */
+   private JSONByteWriter encoder = new JSONByteWriter(buffer);
+
+   /** Number of threads currently waiting to write, or writing, a message */
+   private AtomicInteger pendingWriters = new AtomicInteger();
+
+   /**
+    * Byte order for the message size header.
+    * @see #getByteOrder()
+    * @see #setByteOrder(ByteOrder)
+    */
+   protected ByteOrder byteOrder = ByteOrder.nativeOrder();
+   /**
+    * Getter for {@link #byteOrder}: Byte order for the message size header.
+    * @return Byte order for the message size header.
+    */
+   public ByteOrder getByteOrder() { return byteOrder; }
+   /**
+    * Setter for {@link #byteOrder}: Byte order for the message size header.
+    * @param newByteOrder Byte order for the message size header.
+    */
+   public MessageFrameWriter setByteOrder(ByteOrder newByteOrder) { byteOrder = newByteOrder; return this; }
+
+   /**
+    * Whether to send message size headers.
+    * @see #getSendMessageSize()
+    * @see #setSendMessageSize(boolean)
+    */
+   protected boolean sendMessageSize = true;
+   /**
+    * Getter for {@link #sendMessageSize}: Whether to send message size headers.
+    * @return Whether to send message size headers.
+    */
+   public boolean getSendMessageSize() { return sendMessageSize; }
+   /**
+    * Setter for {@link #sendMessageSize}: Whether to send message size headers.
+    * @param newSendMessageSize Whether to send message size headers.
+    */
+   public MessageFrameWriter setSendMessageSize(boolean newSendMessageSize) { sendMessageSize = newSendMessageSize; return this; }
+
+   /**
+    * Whether to compress large messages with {@link ZipEncoding}.
+    * @see #getZipReplies()
+    * @see #setZipReplies(boolean)
+    */
+   protected volatile boolean zipReplies = false;
+   /**
+    * Getter for {@link #zipReplies}: Whether to compress large messages with {@link ZipEncoding}.
+    * @return Whether to compress large messages with {@link ZipEncoding}.
+    */
+   public boolean getZipReplies() { return zipReplies; }
+   /**
+    * Setter for {@link #zipReplies}: Whether to compress large messages with {@link ZipEncoding}.
+    * @param newZipReplies Whether to compress large messages with {@link ZipEncoding}.
+    */
+   public MessageFrameWriter setZipReplies(boolean newZipReplies) { zipReplies = newZipReplies; return this; }
+
+   /**
+    * Size in bytes above which messages are compressed, if {@link #zipReplies} is true.
+    * @see #getZipThreshold()
+    * @see #setZipThreshold(int)
+    */
+   protected int zipThreshold = 64 * 1024;
+   /**
+    * Getter for {@link #zipThreshold}: Size in bytes above which messages are compressed,
+    * if {@link #zipReplies} is true.
+    * @return Size in bytes above which messages are compressed.
+    */
+   public int getZipThreshold() { return zipThreshold; }
+   /**
+    * Setter for {@link #zipThreshold}: Size in bytes above which messages are compressed,
+    * if {@link #zipReplies} is true.
+    * @param newZipThreshold Size in bytes above which messages are compressed.
+    */
+   public MessageFrameWriter setZipThreshold(int newZipThreshold) { zipThreshold = newZipThreshold; return this; }
+
+   /**
+    * Constructor
+    * @param out Stream to write messages to.
+    */
+   public MessageFrameWriter(OutputStream out)
+   {
+      this.out = out;
+   } // end of constructor
+
+   /**
+    * Writes a message.
+    * @param message The message to send.
+    * @throws IOException If the message could not be written.
+    */
+   public void write(JSONObject message)
+      throws IOException
+   {
+      pendingWriters.incrementAndGet();
+      try
+      {
+	 synchronized (this)
+	 {
+	    try
+	    {
+	       boolean fits = encode(message);
+	       if (zipReplies && (!fits || buffer.size() - HEADER_SIZE > zipThreshold))
+	       {
+		  int plainSize = fits? buffer.size() - HEADER_SIZE : Integer.MAX_VALUE;
+		  boolean zipped = false;
+		  try
+		  {
+		     zipped = encode(ZipEncoding.wrap(message))
+			&& buffer.size() - HEADER_SIZE < plainSize;
+		  }
+		  catch(RuntimeException exception)
+		  { // couldn't compress it
+		  }
+		  if (zipped)
+		  {
+		     fits = true;
+		  }
+		  else if (fits)
+		  { // compression didn't help, so send it as it is
+		     encode(message);
+		  }
+	       }
+	       if (!fits)
+	       { // the browser would disconnect us, so send an error instead
+		  encodeError(
+		     message, "Message too large: over " + MAX_MESSAGE_SIZE + " bytes");
+	       }
+	    }
+	    catch(RuntimeException exception)
+	    { // e.g. a non-finite number - send an error instead of killing the host
+	       encodeError(message, "Could not encode message: " + exception);
+	    }
+	    if (sendMessageSize)
+	    {
+	       buffer.writeHeader(buffer.size() - HEADER_SIZE, byteOrder);
+	       out.write(buffer.array(), 0, buffer.size());
+	    }
+	    else
+	    {
+	       out.write(buffer.array(), HEADER_SIZE, buffer.size() - HEADER_SIZE);
+	    }
+	 } // synchronized
+      }
+      finally
+      {
+	 // only flush if nobody else is about to write
+	 if (pendingWriters.decrementAndGet() == 0)
+	 {
+	    synchronized (this) { out.flush(); }
+	 }
+      }
+   } // end of write()
+
+   /**
+    * Encodes an error reply to the given message into {@link #buffer}, in place of the
+    * message.
+    * @param message The message that couldn't be sent.
+    * @param reason Why it couldn't be sent.
+    * @throws IOException
+    */
+   private void encodeError(JSONObject message, String reason)
+      throws IOException
+   {
+      JSONObject error = new JSONObject();
+      error.put("message", message.optString("message", "sendpraat"));
+      error.put("error", reason);
+      error.put("code", 999);
+      Object clientRef = message.opt("clientRef");
+      if (clientRef != null) error.put("clientRef", clientRef);
+      encode(error);
+   } // end of encodeError()
+
+   /**
+    * Encodes the given message into {@link #buffer}, after the size header, stopping if it
+    * gets larger than {@link #MAX_MESSAGE_SIZE}.
+    * @param message The message to encode.
+    * @return true if the message was encoded, false if it was too large.
+    * @throws IOException
+    */
+   private boolean encode(JSONObject message)
+      throws IOException
+   {
+      buffer.reset();
+      try
+      {
+	 encoder.reset().write(message).flush();
+	 return true;
+      }
+      catch(FrameFullException exception)
+      {
+	 return false;
+      }
+   } // end of encode()
+
+   /**
+    * Thrown by {@link FrameBuffer} when a message won't fit in a frame.
+    */
+   private static class FrameFullException extends RuntimeException
+   {
+      public FrameFullException() { super("Message too large", null, false, false); }
+   } // end of class FrameFullException
+
+   /**
+    * Reusable byte buffer that reserves space for a message size header, and holds no more
+    * than {@link #MAX_MESSAGE_SIZE} bytes after it.
+    */
+   private static class FrameBuffer extends ByteArrayOutputStream
+   {
+      public FrameBuffer() { super(1024); reset(); }
+      /** Empties the buffer, leaving room for the header */
+      @Override public void reset() { count = HEADER_SIZE; }
+      /** Writes a byte, unless the message would be too large */
+      @Override public void write(int b)
+      {
+	 if (count + 1 > HEADER_SIZE + MAX_MESSAGE_SIZE) throw new FrameFullException();
+	 super.write(b);
+      }
+      /** Writes bytes, unless the message would be too large */
+      @Override public void write(byte[] b, int off, int len)
+      {
+	 if (count + len > HEADER_SIZE + MAX_MESSAGE_SIZE) throw new FrameFullException();
+	 super.write(b, off, len);
+      }
+      /** Access to the underlying array */
+      public byte[] array() { return buf; }
+      /**
+       * Sets the size header.
+       * @param size The size of the message.
+       * @param order The byte order of the size.
+       */
+      public void writeHeader(int size, ByteOrder order)
+      {
+	 if (order == ByteOrder.LITTLE_ENDIAN)
+	 {
+	    buf[0] = (byte)size;
+	    buf[1] = (byte)(size >>> 8);
+	    buf[2] = (byte)(size >>> 16);
+	    buf[3] = (byte)(size >>> 24);
+	 }
+	 else
+	 {
+	    buf[0] = (byte)(size >>> 24);
+	    buf[1] = (byte)(size >>> 16);
+	    buf[2] = (byte)(size >>> 8);
+	    buf[3] = (byte)size;
+	 }
+      }
+   } // end of class FrameBuffer
+
+} // end of class MessageFrameWriter
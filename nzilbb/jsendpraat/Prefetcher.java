@@ -0,0 +1,319 @@
+//
+// Copyright 2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nzilbb.http.FileDownloader;
+import org.json.JSONObject;
+
+/**
+ * Downloads media files in the background before they're asked for, so that a later
+ * "sendpraat" message for them finds them already downloaded.
+ * <p>Prefetching gives way to downloads that the user is waiting for. The workers run at
+ * minimum priority, and don't start on another file while any interactive download is in
+ * progress. If the user asks for a file while it's being prefetched, the interactive
+ * download shares the prefetch's transfer instead of starting another.
+ * <p>Hosts are served in turn, and no more than {@link #getMaxPerHost()} files are
+ * prefetched from one host at once. Prefetching stops once {@link #getByteBudget()}
+ * bytes have been downloaded. Files that are already being downloaded when the budget
+ * is reached are finished, so the budget can be exceeded by up to one file per worker.
+ * <p>Prefetches never ask the user to log in. A file that needs a login that the host
+ * doesn't already have is skipped.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class Prefetcher
+{
+   // Attributes:
+
+   /** URLs waiting to be prefetched, keyed on host, in the order the hosts are served */
+   private LinkedHashMap<String,ArrayDeque<URL>> queues = new LinkedHashMap<String,ArrayDeque<URL>>();
+   /** URLs that are queued or being prefetched */
+   private HashSet<String> pending = new HashSet<String>();
+   /** Number of files being prefetched, keyed on host */
+   private HashMap<String,Integer> active = new HashMap<String,Integer>();
+   /** Number of interactive downloads in progress */
+   private int interactive = 0;
+   /** Worker threads, which are started when the first URL is queued */
+   private Thread[] workers;
+
+   /** Number of URLs queued */
+   private long queued = 0;
+   /** Number of files prefetched */
+   private long downloaded = 0;
+   /** Number of bytes prefetched */
+   private long bytes = 0;
+   /**
+    * Number of queued URLs that weren't prefetched, because they had already been
+    * downloaded, the budget ran out, or the download failed
+    */
+   private long skipped = 0;
+
+   /**
+    * Number of files to prefetch at once, from all hosts. The default is 2.
+    * @see #getWorkerCount()
+    * @see #setWorkerCount(int)
+    */
+   protected int workerCount = 2;
+   /**
+    * Getter for {@link #workerCount}: Number of files to prefetch at once, from all hosts.
+    * @return Number of files to prefetch at once, from all hosts.
+    */
+   public int getWorkerCount() { return workerCount; }
+   /**
+    * Setter for {@link #workerCount}: Number of files to prefetch at once, from all hosts.
+    * This has no effect once the first URL has been queued.
+    * @param newWorkerCount Number of files to prefetch at once, from all hosts.
+    */
+   public void setWorkerCount(int newWorkerCount) { workerCount = newWorkerCount; }
+
+   /**
+    * Maximum number of files to prefetch at once from any one host. The default is 1.
+    * @see #getMaxPerHost()
+    * @see #setMaxPerHost(int)
+    */
+   protected int maxPerHost = 1;
+   /**
+    * Getter for {@link #maxPerHost}: Maximum number of files to prefetch at once from any
+    * one host.
+    * @return Maximum number of files to prefetch at once from any one host.
+    */
+   public synchronized int getMaxPerHost() { return maxPerHost; }
+   /**
+    * Setter for {@link #maxPerHost}: Maximum number of files to prefetch at once from any
+    * one host.
+    * @param newMaxPerHost Maximum number of files to prefetch at once from any one host.
+    */
+   public synchronized void setMaxPerHost(int newMaxPerHost) { maxPerHost = newMaxPerHost; notifyAll(); }
+
+   /**
+    * Number of bytes that can be prefetched in total. The default is 256MB.
+    * @see #getByteBudget()
+    * @see #setByteBudget(long)
+    */
+   protected long byteBudget = 256L * 1024L * 1024L;
+   /**
+    * Getter for {@link #byteBudget}: Number of bytes that can be prefetched in total.
+    * @return Number of bytes that can be prefetched in total.
+    */
+   public synchronized long getByteBudget() { return byteBudget; }
+   /**
+    * Setter for {@link #byteBudget}: Number of bytes that can be prefetched in total.
+    * @param newByteBudget Number of bytes that can be prefetched in total.
+    */
+   public synchronized void setByteBudget(long newByteBudget) { byteBudget = newByteBudget; }
+
+   /**
+    * Queues a URL to be prefetched.
+    * @param url The URL of the file.
+    * @return true if the URL was queued, false if it has already been downloaded or
+    * queued, it's not an HTTP URL, or the budget has been used up.
+    */
+   public synchronized boolean prefetch(URL url)
+   {
+      if (!url.getProtocol().startsWith("http")) return false;
+      if (bytes >= byteBudget) return false;
+      if (pending.contains(url.toString())) return false;
+      File file = FileDownloader.getDownloadedFile(url);
+      if (file != null && file.exists()) return false;
+
+      ArrayDeque<URL> queue = queues.get(url.getHost());
+      if (queue == null)
+      {
+	 queue = new ArrayDeque<URL>();
+	 queues.put(url.getHost(), queue);
+      }
+      queue.add(url);
+      pending.add(url.toString());
+      queued++;
+      startWorkers();
+      notifyAll();
+      return true;
+   } // end of prefetch()
+
+   /**
+    * Called when a download that the user is waiting for starts. No more files are
+    * prefetched until it has finished.
+    */
+   public synchronized void interactiveStarted()
+   {
+      interactive++;
+   } // end of interactiveStarted()
+
+   /**
+    * Called when a download that the user is waiting for has finished.
+    */
+   public synchronized void interactiveFinished()
+   {
+      interactive--;
+      notifyAll();
+   } // end of interactiveFinished()
+
+   /**
+    * Starts the worker threads, if they haven't already been started.
+    */
+   private void startWorkers()
+   {
+      if (workers != null) return;
+      workers = new Thread[Math.max(1, workerCount)];
+      for (int w = 0; w < workers.length; w++)
+      {
+	 workers[w] = new Thread(new Runnable() {
+	       public void run() { work(); } }, "Prefetcher-" + w);
+	 workers[w].setDaemon(true);
+	 workers[w].setPriority(Thread.MIN_PRIORITY);
+	 workers[w].start();
+      } // next worker
+   } // end of startWorkers()
+
+   /**
+    * Prefetches queued files, for ever.
+    */
+   private void work()
+   {
+      try
+      {
+	 while (true)
+	 {
+	    URL url = next();
+	    File file = FileDownloader.getDownloadedFile(url);
+	    boolean alreadyDownloaded = file != null && file.exists();
+	    if (!alreadyDownloaded)
+	    {
+	       FileDownloader downloader = new FileDownloader(url);
+	       downloader.setPromptForLogin(false);
+	       downloader.run(); // on this thread, at this thread's priority
+	       file = downloader.getLocalFile();
+	    }
+	    finished(url, alreadyDownloaded || file == null ? -1 : file.length());
+	 } // next URL
+      }
+      catch(InterruptedException exception)
+      {
+      }
+   } // end of work()
+
+   /**
+    * Waits for the next URL that can be prefetched: there must be no interactive
+    * downloads in progress, and the URL's host must be under {@link #getMaxPerHost()}.
+    * @return The next URL to prefetch.
+    * @throws InterruptedException
+    */
+   private synchronized URL next()
+      throws InterruptedException
+   {
+      while (true)
+      {
+	 if (bytes >= byteBudget)
+	 { // budget used up, so forget the rest
+	    for (ArrayDeque<URL> queue : queues.values())
+	    {
+	       for (URL url : queue) pending.remove(url.toString());
+	       skipped += queue.size();
+	    }
+	    queues.clear();
+	 }
+	 else if (interactive == 0)
+	 {
+	    String host = null;
+	    for (Map.Entry<String,ArrayDeque<URL>> entry : queues.entrySet())
+	    {
+	       Integer count = active.get(entry.getKey());
+	       if (count == null || count < maxPerHost)
+	       {
+		  host = entry.getKey();
+		  break;
+	       }
+	    } // next host
+	    if (host != null)
+	    {
+	       // take the host out of turn, and put it at the back if there's more to do
+	       ArrayDeque<URL> queue = queues.remove(host);
+	       URL url = queue.poll();
+	       if (!queue.isEmpty()) queues.put(host, queue);
+	       Integer count = active.get(host);
+	       active.put(host, count == null ? 1 : count + 1);
+	       return url;
+	    }
+	 }
+	 wait();
+      }
+   } // end of next()
+
+   /**
+    * Called when a worker has finished with a URL.
+    * @param url The URL.
+    * @param fileBytes The size of the downloaded file, or -1 if it wasn't downloaded.
+    */
+   private synchronized void finished(URL url, long fileBytes)
+   {
+      pending.remove(url.toString());
+      int count = active.get(url.getHost()) - 1;
+      if (count == 0)
+      {
+	 active.remove(url.getHost());
+      }
+      else
+      {
+	 active.put(url.getHost(), count);
+      }
+      if (fileBytes < 0)
+      {
+	 skipped++;
+      }
+      else
+      {
+	 downloaded++;
+	 bytes += fileBytes;
+      }
+      notifyAll();
+   } // end of finished()
+
+   /**
+    * Summarises what has been prefetched, as JSON.
+    * @return A JSON object with "queued", "pending", "downloaded", "bytes" and "skipped"
+    * attributes.
+    */
+   public synchronized JSONObject toJSON()
+   {
+      JSONObject json = new JSONObject();
+      json.put("queued", queued);
+      json.put("pending", pending.size());
+      json.put("downloaded", downloaded);
+      json.put("bytes", bytes);
+      json.put("skipped", skipped);
+      return json;
+   } // end of toJSON()
+
+   /**
+    * Number of URLs that have been queued.
+    * @return Number of URLs that have been queued.
+    */
+   public synchronized long getQueued() { return queued; }
+
+} // end of class Prefetcher
@@ -0,0 +1,233 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.io.IOException;
+import java.util.Vector;
+import nzilbb.http.IProgressIndicator;
+import org.json.JSONObject;
+
+/**
+ * Reports download progress for one message back to the browser.
+ * <p>Each transfer involved in handling the message gets its own {@link IProgressIndicator}
+ * from {@link #newTransfer()}, and progress of all transfers is merged into a single stream of
+ * "progress" messages, e.g.
+ * <pre>
+ * {
+ *   "message" : "progress",
+ *   "maximum" : 2048000,
+ *   "value" : 1024000,
+ *   "string" : "https://myserver/myfile.wav",
+ *   "bytesPerSecond" : 512000,
+ *   "eta" : 2,
+ *   "clientRef" : "it's me"
+ * }
+ * </pre>
+ * <p>Updates are cheap; a progress message is only sent if at least
+ * {@link #getMinimumInterval()} milliseconds have passed since the last one, except when a
+ * transfer calls {@link IProgressIndicator#finished()}, which is always reported.
+ * <p>Transfers that haven't set their maximum yet, e.g. because they haven't connected,
+ * are left out of the merged progress.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class ProgressReporter
+{
+   // Attributes:
+
+   /** Where to send progress messages - may be null */
+   private MessageFrameWriter stdout;
+
+   /** Reference to pass back to the client on progress updates - may be null */
+   private String clientRef;
+
+   /** For logging */
+   private AsyncLog log;
+
+   /** Transfers being tracked */
+   private Vector<Transfer> transfers = new Vector<Transfer>();
+
+   /** Latest descriptive string from any transfer */
+   private volatile String string = "";
+
+   /** When this reporter was created, in nanoseconds */
+   private long started = System.nanoTime();
+
+   /** When the last progress message was sent, in nanoseconds */
+   private long lastReport;
+
+   /**
+    * Minimum number of milliseconds between progress messages.
+    * @see #getMinimumInterval()
+    * @see #setMinimumInterval(long)
+    */
+   protected long minimumInterval = 100;
+   /**
+    * Getter for {@link #minimumInterval}: Minimum number of milliseconds between progress messages.
+    * @return Minimum number of milliseconds between progress messages.
+    */
+   public long getMinimumInterval() { return minimumInterval; }
+   /**
+    * Setter for {@link #minimumInterval}: Minimum number of milliseconds between progress messages.
+    * @param newMinimumInterval Minimum number of milliseconds between progress messages.
+    */
+   public ProgressReporter setMinimumInterval(long newMinimumInterval) { minimumInterval = newMinimumInterval; return this; }
+
+   /**
+    * Constructor
+    * @param stdout Where to send progress messages - may be null.
+    * @param clientRef Reference to pass back to the client on progress updates - may be null.
+    * @param log For logging - may be null.
+    */
+   public ProgressReporter(MessageFrameWriter stdout, String clientRef, AsyncLog log)
+   {
+      this.stdout = stdout;
+      this.clientRef = clientRef;
+      this.log = log;
+      lastReport = started - minimumInterval * 1000000L; // so the first update is reported
+   } // end of constructor
+
+   /**
+    * Starts tracking a new transfer.
+    * @return A progress indicator for the new transfer.
+    */
+   public IProgressIndicator newTransfer()
+   {
+      Transfer transfer = new Transfer();
+      transfers.add(transfer);
+      return transfer;
+   } // end of newTransfer()
+
+   /**
+    * Sends an error message back to the client.
+    * @param error The error.
+    */
+   public void error(String error)
+   {
+      JSONObject json = new JSONObject();
+      json.put("message", "progress");
+      json.put("error", error);
+      json.put("code", 600);
+      if (clientRef != null) json.put("clientRef", clientRef);
+      send(json);
+   } // end of error()
+
+   /**
+    * Called by transfers when their progress changes. Sends a progress message if the
+    * update is final, or enough time has passed since the last one.
+    * @param isFinal Whether the transfer has completed.
+    */
+   protected synchronized void update(boolean isFinal)
+   {
+      long now = System.nanoTime();
+      if (!isFinal && now - lastReport < minimumInterval * 1000000L) return;
+      lastReport = now;
+
+      // merge all transfers
+      long maximum = 0;
+      long value = 0;
+      synchronized (transfers)
+      {
+	 for (Transfer t : transfers)
+	 {
+	    if (!t.maximumSet) continue; // size not known yet
+	    maximum += t.maximum;
+	    value += t.value;
+	 }
+      }
+      JSONObject json = new JSONObject();
+      json.put("message", "progress");
+      json.put("maximum", maximum);
+      json.put("value", value);
+      json.put("string", string);
+      double seconds = (now - started) / 1000000000.0;
+      if (seconds > 0)
+      {
+	 long bytesPerSecond = (long)(value / seconds);
+	 json.put("bytesPerSecond", bytesPerSecond);
+	 if (bytesPerSecond > 0 && value < maximum)
+	 {
+	    json.put("eta", (maximum - value) / bytesPerSecond);
+	 }
+      }
+      if (clientRef != null) json.put("clientRef", clientRef);
+      send(json);
+   } // end of update()
+
+   /**
+    * Sends the given message to the client.
+    * @param json The message.
+    */
+   private void send(JSONObject json)
+   {
+      if (log != null) log.debug(() -> "progress: " + json);
+      try
+      {
+	 if (stdout != null) stdout.write(json);
+      }
+      catch(IOException exception)
+      {
+	 if (log != null) log.error(exception.toString());
+      }
+   } // end of send()
+
+   /**
+    * Progress of a single transfer.
+    */
+   class Transfer implements IProgressIndicator
+   {
+      volatile int maximum = 100;
+      volatile boolean maximumSet = false;
+      volatile int value = 0;
+      volatile String transferString = "";
+      volatile boolean isFinished = false;
+
+      public int getMaximum() { return maximum; }
+      public void setMaximum(int newMaximum)
+      {
+	 maximum = newMaximum;
+	 maximumSet = true;
+	 update(false);
+      }
+      public int getValue() { return value; }
+      public void setValue(int newValue)
+      {
+	 value = newValue;
+	 update(false);
+      }
+      public void finished()
+      {
+	 if (isFinished) return;
+	 isFinished = true;
+	 update(true);
+      }
+      public String getString() { return transferString; }
+      public void setString(String newString)
+      {
+	 if (newString == null || newString.equals(transferString)) return;
+	 transferString = newString;
+	 string = newString;
+	 update(false);
+      }
+   } // end of class Transfer
+
+} // end of class ProgressReporter
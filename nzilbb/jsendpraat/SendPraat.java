@@ -26,7 +26,6 @@ import java.awt.Desktop;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -37,16 +36,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.PushbackReader;
+import java.io.Reader;
 import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -56,10 +60,10 @@ import javax.swing.UIManager;
 import nzilbb.http.FileDownloader;
 import nzilbb.http.HttpRequestPostMultipart;
 import nzilbb.http.IMessageHandler;
-import nzilbb.http.IProgressIndicator;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
 
 /**
  * Java implementation of sendpraat.
@@ -92,6 +96,24 @@ import org.json.JSONObject;
  *    }
  *  </pre></li>
  * </ul>
+ * <p>Performance counters and latency histograms can be retrieved by sending a
+ * <tt>{ "message" : "stats" }</tt> message.
+ * <p>Large replies can be compressed, if the "version" message includes
+ * <tt>"encodings" : [ "jsonzip" ]</tt> - see {@link ZipEncoding}.
+ * <p>Media files can be downloaded in the background, before they're needed, with a
+ * "prefetch" message - see {@link Prefetcher}:<pre>
+ *    {
+ *        "message" : "prefetch", 
+ *        "urls" : [ <var>url</var>, ... ], // URLs of media files
+ *        "authorization" : <var>authorization</var> // HTTP Authorization header
+ *    }
+ *  </pre>
+ * Prefetching is off unless the "prefetch" setting is true, in which case the reply to the
+ * "version" message includes <tt>"prefetch" : true</tt> so that clients know they can send
+ * these.
+ * <p>If the "prelaunchPraat" setting is true, the first "version" message - which the
+ * browser extension sends as soon as it connects - also launches Praat in the background,
+ * so it's ready by the time the user first opens something in it.
  */
 public class SendPraat
 {
@@ -139,11 +161,44 @@ public class SendPraat
    static public void setPathToPraat(String sNewPathToPraat) { pathToPraat = sNewPathToPraat; }
    
    /**
-    * Whether to use verbose logging or not.
+    * The message types that {@link #processMessage(String,MessageFrameWriter)} handles.
+    * Stats are kept for each of these, and for all other types together as "other", so
+    * that clients can't make the stats grow by sending made-up message types.
+    */
+   protected static final Set<String> MESSAGE_TYPES = new HashSet<String>(
+      Arrays.asList("version", "stats", "prefetch", "sendpraat", "upload"));
+
+   /** Performance stats, returned in reply to "stats" messages */
+   protected HostStats stats = new HostStats();
+   /**
+    * Stats accessor
+    * @return Performance stats.
+    */
+   public HostStats getStats() { return stats; }
+
+   /** Background downloads of files that will probably be needed soon */
+   protected Prefetcher prefetcher = new Prefetcher();
+   /**
+    * Prefetcher accessor
+    * @return Background downloads of files that will probably be needed soon.
+    */
+   public Prefetcher getPrefetcher() { return prefetcher; }
+
+   /** Log for messages and errors */
+   protected AsyncLog logger = new AsyncLog();
+   /**
+    * Log accessor
+    * @return Log for messages and errors.
+    */
+   public AsyncLog getLogger() { return logger; }
+
+   /**
+    * Whether to use verbose logging or not. This can be set with the "verbose" setting in
+    * SendPraat.xml.
     * @see #getVerbose()
     * @see #setVerbose(boolean)
     */
-   protected boolean verbose = true; // TODO default to false
+   protected boolean verbose = false;
    /**
     * Getter for {@link #verbose}: Whether to use verbose logging or not.
     * @return Whether to use verbose logging or not.
@@ -153,7 +208,86 @@ public class SendPraat
     * Setter for {@link #verbose}: Whether to use verbose logging or not.
     * @param newVerbose Whether to use verbose logging or not.
     */
-   public void setVerbose(boolean newVerbose) { verbose = newVerbose; }
+   public void setVerbose(boolean newVerbose)
+   {
+      verbose = newVerbose;
+      logger.setLevel(verbose?AsyncLog.Level.DEBUG:AsyncLog.Level.INFO);
+   }
+   
+   /**
+    * Whether to launch Praat in the background when the first "version" message arrives,
+    * if it's not already running. This can be set with the "prelaunchPraat" setting in
+    * SendPraat.xml.
+    * @see #getPrelaunchPraat()
+    * @see #setPrelaunchPraat(boolean)
+    */
+   protected boolean prelaunchPraat = false;
+   /**
+    * Getter for {@link #prelaunchPraat}: Whether to launch Praat in the background when
+    * the first "version" message arrives.
+    * @return Whether to launch Praat in the background when the first "version" message
+    * arrives.
+    */
+   public boolean getPrelaunchPraat() { return prelaunchPraat; }
+   /**
+    * Setter for {@link #prelaunchPraat}: Whether to launch Praat in the background when
+    * the first "version" message arrives.
+    * @param newPrelaunchPraat Whether to launch Praat in the background when the first
+    * "version" message arrives.
+    */
+   public void setPrelaunchPraat(boolean newPrelaunchPraat) { prelaunchPraat = newPrelaunchPraat; }
+
+   /**
+    * Whether to accept "prefetch" messages, downloading media files found on pages before
+    * they're opened. This can be set with the "prefetch" setting in SendPraat.xml.
+    * @see #getPrefetch()
+    * @see #setPrefetch(boolean)
+    */
+   protected boolean prefetch = false;
+   /**
+    * Getter for {@link #prefetch}: Whether to accept "prefetch" messages.
+    * @return Whether to accept "prefetch" messages.
+    */
+   public boolean getPrefetch() { return prefetch; }
+   /**
+    * Setter for {@link #prefetch}: Whether to accept "prefetch" messages.
+    * @param newPrefetch Whether to accept "prefetch" messages.
+    */
+   public void setPrefetch(boolean newPrefetch) { prefetch = newPrefetch; }
+
+   /** Thread launching Praat ahead of the first script, if any */
+   private Thread prelauncher;
+   /** Whether a script has already waited for {@link #prelauncher} */
+   private boolean prelaunchAwaited = false;
+   /** Whether {@link #prelauncher} actually launched Praat */
+   private boolean praatPrelaunched = false;
+   /** When {@link #prelauncher} started, in nanoseconds */
+   private long prelaunchStarted;
+   /** When the Praat launched by {@link #prelauncher} was ready, in nanoseconds */
+   private long prelaunchReady;
+   
+   /**
+    * Size in bytes above which the server's response to an upload is not read whole; only
+    * the parts of it that the page uses are kept - top level values, "errors", "messages",
+    * and the top level values and "mappings" of "model". Responses with no Content-Length
+    * are read whole unless they turn out to have more than this many characters.
+    * @see #getLargeUploadResponse()
+    * @see #setLargeUploadResponse(long)
+    */
+   protected long largeUploadResponse = 256 * 1024;
+   /**
+    * Getter for {@link #largeUploadResponse}: Size in bytes above which the server's
+    * response to an upload is not read whole.
+    * @return Size in bytes above which the server's response to an upload is not read whole.
+    */
+   public long getLargeUploadResponse() { return largeUploadResponse; }
+   /**
+    * Setter for {@link #largeUploadResponse}: Size in bytes above which the server's
+    * response to an upload is not read whole.
+    * @param newLargeUploadResponse Size in bytes above which the server's response to an
+    * upload is not read whole.
+    */
+   public void setLargeUploadResponse(long newLargeUploadResponse) { largeUploadResponse = newLargeUploadResponse; }
    
    /** Error message returned */
    private String errorMessage;
@@ -234,9 +368,13 @@ public class SendPraat
 	    configDir = new File(configDir, "jsendpraat");
 	 }
 	 configDir.mkdir(); // in case it's not there yet
+	 logger.setFile(new File(configDir, "jsendpraat.log"));
 	 sendpraatXml = new File(configDir, "SendPraat.xml");
 	 log("Settings in: " + sendpraatXml.getPath());
 	 settings.loadFromXML(new FileInputStream(sendpraatXml));
+	 setVerbose("true".equalsIgnoreCase(settings.getProperty("verbose")));
+	 setPrelaunchPraat("true".equalsIgnoreCase(settings.getProperty("prelaunchPraat")));
+	 setPrefetch("true".equalsIgnoreCase(settings.getProperty("prefetch")));
 	 setPathToPraat(settings.getProperty("pathToPraat"));
 	 log("Loaded path: " + getPathToPraat());
       }
@@ -286,6 +424,9 @@ public class SendPraat
 	    { // try saving it for future reference
 	       Properties settings = new Properties();
 	       settings.setProperty("pathToPraat", getPathToPraat());
+	       if (verbose) settings.setProperty("verbose", "true");
+	       if (prelaunchPraat) settings.setProperty("prelaunchPraat", "true");
+	       if (prefetch) settings.setProperty("prefetch", "true");
 	       settings.storeToXML(new FileOutputStream(sendpraatXml), 
 				   "Automatically deduced praat location", "UTF-8");
 	    }
@@ -340,6 +481,9 @@ public class SendPraat
 	    { // try saving it for future reference
 	       Properties settings = new Properties();
 	       settings.setProperty("pathToPraat", getPathToPraat());
+	       if (verbose) settings.setProperty("verbose", "true");
+	       if (prelaunchPraat) settings.setProperty("prelaunchPraat", "true");
+	       if (prefetch) settings.setProperty("prefetch", "true");
 	       settings.storeToXML(new FileOutputStream(sendpraatXml), 
 				   "User-selected praat location", "UTF-8");
 	    }
@@ -419,10 +563,12 @@ public class SendPraat
 	 try
 	 {
 	    String[] cmdArray = { strCommand };
+	    long started = System.nanoTime();
 	    procPraat = Runtime.getRuntime().exec(cmdArray);
 	    log("Praat started");
 
 	    try { Thread.sleep(lWaitMsPraatStart); } catch(InterruptedException x){}
+	    stats.praatStarted(System.nanoTime() - started);
 
 	    // if there was any stdout/stderr output from praat, print it on our stderr
 	    InputStream inStream = procPraat.getInputStream();
@@ -470,6 +616,102 @@ public class SendPraat
       return procPraat;
    } // end of startPraat()
 
+   /**
+    * Launches Praat in the background, unless it's already running, so that it's ready by
+    * the time the first script is sent. Only the first call has any effect.
+    */
+   public void prelaunchPraat()
+   {
+      if (prelauncher != null) return;
+      prelaunchStarted = System.nanoTime();
+      prelauncher = new Thread(new Runnable() {
+	    public void run()
+	    {
+	       if (isPraatRunning())
+	       {
+		  log("Praat is already running");
+		  stats.praatPrelaunched(false);
+	       }
+	       else
+	       {
+		  log("Launching Praat ahead of the first script...");
+		  startPraat();
+		  prelaunchReady = System.nanoTime();
+		  praatPrelaunched = true;
+		  stats.praatPrelaunched(true);
+	       }
+	    }
+	 }, "Praat prelaunch");
+      prelauncher.setDaemon(true);
+      prelauncher.start();
+   } // end of prelaunchPraat()
+
+   /**
+    * Waits for any background launch of Praat to finish, so that the first script doesn't
+    * start a second Praat, and records how much of Praat's start-up time was saved.
+    */
+   private void awaitPrelaunch()
+   {
+      if (prelauncher == null || prelaunchAwaited) return;
+      prelaunchAwaited = true;
+      long arrived = System.nanoTime();
+      try { prelauncher.join(); } catch(InterruptedException x) {}
+      if (praatPrelaunched)
+      {
+	 stats.praatStartSaved(Math.min(arrived, prelaunchReady) - prelaunchStarted);
+      }
+   } // end of awaitPrelaunch()
+
+   /**
+    * Determines whether Praat is running, either because we started it, or because the
+    * user did.
+    * @return true if Praat is running, or if it can't be determined whether it is.
+    */
+   public boolean isPraatRunning()
+   {
+      if (procPraat != null)
+      {
+	 try
+	 {
+	    procPraat.exitValue();
+	 }
+	 catch(IllegalThreadStateException exception)
+	 { // still running
+	    return true;
+	 }
+      }
+      String programFile = new File(praatProgramName).getName(); // e.g. Praat.exe
+      try
+      {
+	 if (win)
+	 {
+	    String[] cmd = {"tasklist", "/FI", "IMAGENAME eq " + programFile, "/NH"};
+	    Process proc = Runtime.getRuntime().exec(cmd);
+	    BufferedReader in = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+	    boolean running = false;
+	    for (String line = in.readLine(); line != null; line = in.readLine())
+	    {
+	       if (line.toLowerCase().startsWith(programFile.toLowerCase())) running = true;
+	    }
+	    in.close();
+	    proc.waitFor();
+	    return running;
+	 }
+	 else
+	 {
+	    String[] cmd = {"pgrep", "-x", programFile};
+	    Process proc = Runtime.getRuntime().exec(cmd);
+	    // 0 means there's a match, 1 means there isn't, anything else is an error
+	    return proc.waitFor() != 1;
+	 }
+      }
+      catch (Throwable t)
+      {
+	 logError("Could not determine whether Praat is running: " + t);
+	 return true;
+      }
+   } // end of isPraatRunning()
+
    /**
     * Runs the message-handling loop for handling messages as a 
     * <a href="https://developer.chrome.com/extensions/nativeMessaging#native-messaging-host-protocol">Chromium Native Messaging</a> host.
@@ -525,7 +767,9 @@ public class SendPraat
    protected void chromiumHost()
    {
       DataInputStream stdin = new DataInputStream(System.in);
-      DataOutputStream stdout = new DataOutputStream(System.out);
+      MessageFrameWriter stdout = new MessageFrameWriter(System.out)
+	 .setByteOrder(nativeByteOrder)
+	 .setSendMessageSize(bSendMessageSize);
       byte[] messageSizeBuffer = new byte[4];
       while (true)
       {
@@ -536,23 +780,14 @@ public class SendPraat
 	    stdin.readFully(messageSizeBuffer);
 	    long messageSize = ByteBuffer.wrap(messageSizeBuffer)
 	       .order(nativeByteOrder).getInt() & 0xFFFFFFFFL;
-	    log("Message size: " + messageSize);
+	    final long size = messageSize;
+	    log(() -> "Message size: " + size);
 	    
 	    // read message
 	    byte[] bMessage = new byte[(int)messageSize];
 	    stdin.readFully(bMessage);
 	    String strMessage = new String(bMessage);
-	    String reply = jsonMessage(strMessage, stdout);
-	    byte[] replyBuffer = reply.getBytes("UTF-8");
-	    if (bSendMessageSize)
-	    {
-	       ByteBuffer replySizeBuffer = ByteBuffer.allocate(4).order(nativeByteOrder);
-	       replySizeBuffer.putInt(replyBuffer.length);
-	       stdout.write(replySizeBuffer.array(), 0, 4);
-	       stdout.flush();
-	    }
-	    stdout.write(replyBuffer, 0, replyBuffer.length);
-	    stdout.flush();
+	    stdout.write(processMessage(strMessage, stdout));
 	 }
 	 catch(EOFException exception)
 	 {
@@ -566,6 +801,7 @@ public class SendPraat
 	 }
       } // next message
       log("Goodbye");
+      FileDownloader.deleteDownloadedFiles();
       System.exit(0);
    } // end of chromiumHost()
 
@@ -573,17 +809,37 @@ public class SendPraat
    /**
     * Process a JSON-encoded message.
     * @param strMessage
+    * @param stdout For reporting progress, or null.
     * @return The JSON-encoded reply
     */
-   public String jsonMessage(String strMessage, DataOutputStream stdout)
+   public String jsonMessage(String strMessage, MessageFrameWriter stdout)
+   {
+      return processMessage(strMessage, stdout).toString();
+   } // end of jsonMessage()
+
+   /**
+    * Process a JSON-encoded message.
+    * @param strMessage
+    * @param stdout For reporting progress, or null.
+    * @return The reply
+    */
+   protected JSONObject processMessage(String strMessage, MessageFrameWriter stdout)
    {
-      log("Message: " + strMessage);
+      log(() -> "Message: " + strMessage);
+      long started = System.nanoTime();
+      stats.messageStarted();
+      String messageType = "invalid";
       JSONObject jsonReply = new JSONObject("{ \"message\":\"sendpraat\", \"error\":\"Invalid message\", \"code\":999}");
       String clientRef = null;
       try
       {
 	 // parse JSON
 	 JSONObject jsonMessage = new JSONObject(strMessage);
+	 if (jsonMessage.has("message"))
+	 {
+	    messageType = jsonMessage.optString("message");
+	    if (!MESSAGE_TYPES.contains(messageType)) messageType = "other";
+	 }
 	 if (jsonMessage.has("clientRef"))
 	 {
 	    clientRef = jsonMessage.getString("clientRef");
@@ -597,6 +853,77 @@ public class SendPraat
 	 {
 	    jsonReply.put("message", "version");
 	    jsonReply.put("version", getClass().getPackage().getImplementationVersion());
+	    // does the client accept compressed replies?
+	    JSONArray encodings = jsonMessage.optJSONArray("encodings");
+	    if (stdout != null && encodings != null)
+	    {
+	       for (int e = 0; e < encodings.length(); e++)
+	       {
+		  if (ZipEncoding.NAME.equals(encodings.optString(e)))
+		  {
+		     stdout.setZipReplies(true);
+		     jsonReply.put("encoding", ZipEncoding.NAME);
+		  }
+	       } // next encoding
+	    }
+	    // tell the client it can send "prefetch" messages
+	    if (prefetch) jsonReply.put("prefetch", true);
+	    // the extension sends this as soon as it connects, so Praat will probably be
+	    // needed soon
+	    if (prelaunchPraat) prelaunchPraat();
+	    jsonReply.remove("error");
+	    jsonReply.put("code", 0);
+	 }
+	 else if ("stats".equals(jsonMessage.getString("message")))
+	 {
+	    jsonReply.put("message", "stats");
+	    JSONObject jsonStats = stats.toJSON();
+	    if (logger.getCallCount() > 0)
+	    {
+	       JSONObject jsonLog = new JSONObject();
+	       jsonLog.put("messages", logger.getCallCount());
+	       jsonLog.put("nsPerMessage", logger.getCallNanos() / logger.getCallCount());
+	       jsonLog.put("dropped", logger.getDropped());
+	       jsonStats.put("log", jsonLog);
+	    }
+	    if (prefetcher.getQueued() > 0)
+	    {
+	       jsonStats.put("prefetch", prefetcher.toJSON());
+	    }
+	    jsonReply.put("stats", jsonStats);
+	    jsonReply.remove("error");
+	    jsonReply.put("code", 0);
+	 }
+	 else if ("prefetch".equals(jsonMessage.getString("message")))
+	 {
+	    jsonReply.put("message", "prefetch");
+	    JSONArray urls = jsonMessage.optJSONArray("urls");
+	    int queued = 0;
+	    if (!prefetch)
+	    {
+	       log("Prefetching is not enabled");
+	    }
+	    else if (urls != null)
+	    {
+	       for (int u = 0; u < urls.length(); u++)
+	       {
+		  String spec = urls.optString(u, null);
+		  if (spec == null) continue; // null entry
+		  try
+		  {
+		     URL url = new URL(spec);
+		     FileDownloader.addAuthorization(url, authorization);
+		     if (prefetcher.prefetch(url)) queued++;
+		  }
+		  catch(MalformedURLException exception)
+		  {
+		     logError("Cannot prefetch: " + exception);
+		  }
+	       } // next URL
+	    }
+	    final int queuedCount = queued;
+	    log(() -> "Prefetching " + queuedCount + " files");
+	    jsonReply.put("queued", queued);
 	    jsonReply.remove("error");
 	    jsonReply.put("code", 0);
 	 }
@@ -629,11 +956,23 @@ public class SendPraat
 	    { // there are arguments
 	       // get the argments as an array of strings
 	       String argv[] = new String[jsonArguments.length()];
-	       for (int i = 0; i < argv.length; i++)
+	       // progress of all downloads is reported together
+	       ProgressReporter progress = newProgressReporter(stdout, clientRef);
+	       // prefetching waits until the user has what they're waiting for
+	       prefetcher.interactiveStarted();
+	       try
+	       {
+		  for (int i = 0; i < argv.length; i++)
+		  {
+		     // download any HTTP URLs to local files...
+		     argv[i] = convertHttpToLocal(jsonArguments.getString(i), progress, authorization);
+		  } // next arguments
+	       }
+	       finally
 	       {
-		  // download any HTTP URLs to local files...
-		  argv[i] = convertHttpToLocal(jsonArguments.getString(i), stdout, clientRef, authorization);
-	       } // next arguments
+		  prefetcher.interactiveFinished();
+	       }
+	       awaitPrelaunch();
 	       String reply = sendpraat(argv);
 	       jsonReply.put("error", reply);
 	       if (reply != null) 
@@ -685,11 +1024,23 @@ public class SendPraat
       {
 	 jsonReply.put("clientRef", clientRef);
       }
+      stats.messageFinished(messageType, System.nanoTime() - started);
       // reply to message
-      String reply = jsonReply.toString();
-      log("reply: " + reply);
+      final JSONObject reply = jsonReply;
+      log(() -> "reply: " + reply);
       return reply;
-   } // end of jsonMessage()
+   } // end of processMessage()
+
+   /**
+    * Creates an object for reporting progress of downloads for a message.
+    * @param stdout Where to send progress messages - may be null.
+    * @param clientRef Reference to pass back to the client on progress updates - may be null.
+    * @return A new progress reporter.
+    */
+   protected ProgressReporter newProgressReporter(MessageFrameWriter stdout, String clientRef)
+   {
+      return new ProgressReporter(stdout, clientRef, logger);
+   } // end of newProgressReporter()
 
    
    /**
@@ -701,7 +1052,21 @@ public class SendPraat
     * @return The given string, with all HTTP URLs converted to local paths where possible.
     * @throws Exception If something goes wrong during download.
     */
-   public String convertHttpToLocal(String s, final DataOutputStream stdout, final String clientRef, String authorization)
+   public String convertHttpToLocal(String s, MessageFrameWriter stdout, String clientRef, String authorization)
+      throws Exception
+   {
+      return convertHttpToLocal(s, newProgressReporter(stdout, clientRef), authorization);
+   } // end of convertHttpToLocal()
+
+   /**
+    * Converts all http:// and https:// URLs in the given string to local file paths, by downloading the content to a local file.
+    * @param s The command to convert.
+    * @param progress For reporting progress.
+    * @param authorization Authorization header to send with HTTP requests, if any.
+    * @return The given string, with all HTTP URLs converted to local paths where possible.
+    * @throws Exception If something goes wrong during download.
+    */
+   public String convertHttpToLocal(String s, final ProgressReporter progress, String authorization)
       throws Exception
    {
       Matcher httpUrlMatcher = httpUrlPattern.matcher(s);
@@ -713,72 +1078,14 @@ public class SendPraat
 	 // copy through the non-URL stuff that precedes this URL
 	 newS.append(s.substring(position, httpUrlMatcher.start()));
 	 File file = null;
-	 URL url = null;
-	 url = new URL(httpUrlMatcher.group());
-	 log("Fetching " + url);
+	 URL url = new URL(httpUrlMatcher.group());
+	 log(() -> "Fetching " + url);
+	 File alreadyDownloaded = FileDownloader.getDownloadedFile(url);
+	 boolean cacheHit = alreadyDownloaded != null && alreadyDownloaded.exists();
+	 long downloadStarted = System.nanoTime();
 	 
 	 FileDownloader downloader = new FileDownloader(
-	    url, new IProgressIndicator()
-	       {
-		  int maximum = 100;
-		  public int getMaximum() { return maximum; }
-		  public void setMaximum(int newMaximum) { maximum = newMaximum; reportProgress(); }
-		  int value = 0;
-		  public int getValue() { return value; }
-		  public void setValue(int newValue) 
-		  { 
-		     // only report report progress every 5%, so as not to flood the caller
-		     // ...more than 5% chunk
-		     boolean report = (Math.abs(newValue - value) * 100) / maximum > 5 
-			// or little chunks, and we've reached a 5% multiple
-			|| ((newValue * 100) / maximum % 5 == 0 
-			    && (value * 100) / maximum % 5 != 0)
-			// or if we reach the end (or beginning)
-			|| newValue == maximum || newValue == 0;
-		     value = newValue; 
-		     if (report) reportProgress(); 
-		  }
-		  String string = "";
-		  public String getString() { return string; }
-		  public void setString(String newString) 
-		  { 
-		     boolean report = !newString.equals(string);
-		     string = newString; 
-		     if (report) reportProgress(); 
-		  }
-		  void reportProgress()
-		  {
-		     JSONObject json = new JSONObject();
-		     json.put("message", "progress");
-		     json.put("maximum", maximum);
-		     json.put("value", value);
-		     json.put("string", string);
-		     if (clientRef != null) json.put("clientRef", clientRef);
-		     String reply = json.toString();
-		     log("progress: " + reply);
-		     try
-		     {
-			byte[] replyBuffer = reply.getBytes("UTF-8");
-			if (bSendMessageSize)
-			{
-			   ByteBuffer replySizeBuffer = ByteBuffer.allocate(4).order(nativeByteOrder);
-			   replySizeBuffer.putInt(replyBuffer.length);
-			   if (stdout != null)
-			   {
-			      stdout.write(replySizeBuffer.array(), 0, 4);
-			      stdout.flush();
-			   }
-			}
-			if (stdout != null)
-			{
-			   stdout.write(replyBuffer, 0, replyBuffer.length);			
-			   stdout.flush();
-			}
-		     }
-		     catch(UnsupportedEncodingException exception) { logError(exception.toString()); }
-		     catch(IOException exception) { logError(exception.toString()); }
-		  }
-	       }, 
+	    url, progress.newTransfer(), 
 	    new IMessageHandler()
 	    {
 	       public void message(String s) { log(s); }
@@ -787,42 +1094,19 @@ public class SendPraat
 		  logError(s); 
 		  
 		  // send error back to client too
-		  JSONObject json = new JSONObject();
-		  json.put("message", "progress");
-		  json.put("error", s);
-		  json.put("code", 600);
-		  if (clientRef != null) json.put("clientRef", clientRef);
-		  String reply = json.toString();
-		  try
-		  {
-		     byte[] replyBuffer = reply.getBytes("UTF-8");
-		     if (bSendMessageSize)
-		     {
-			ByteBuffer replySizeBuffer = ByteBuffer.allocate(4).order(nativeByteOrder);
-			replySizeBuffer.putInt(replyBuffer.length);
-			if (stdout != null)
-			{
-			   stdout.write(replySizeBuffer.array(), 0, 4);
-			   stdout.flush();
-			}
-		     }
-		     if (stdout != null)
-		     {
-			stdout.write(replyBuffer, 0, replyBuffer.length);			
-			stdout.flush();
-		     }
-		  }
-		  catch(UnsupportedEncodingException exception) { logError(exception.toString()); }
-		  catch(IOException exception) { logError(exception.toString()); }
+		  progress.error(s);
 	       }
 	    }, authorization);
 	 synchronized (downloader)
 	 {
+	    stats.downloadStarted();
 	    downloader.start();
 	    downloader.wait();
 	    
 	    // set the local file for Praat
 	    file = downloader.getLocalFile();
+	    stats.downloadFinished(cacheHit, file == null || cacheHit?0:file.length(),
+				   System.nanoTime() - downloadStarted);
 	    if (file == null)
 	    {
 	       logError("Download of " + url + " failed.");
@@ -831,7 +1115,8 @@ public class SendPraat
 	    }
 	    else
 	    {
-              log("Local file: " + file.getPath());
+              final File localFile = file;
+              log(() -> "Local file: " + localFile.getPath());
 	    }
 	 } // synchronized
 	 if (file != null && file.exists())
@@ -849,7 +1134,7 @@ public class SendPraat
       } // next URL
       // copy through the non-URL end of the string
       newS.append(s.substring(position));
-      log("command: " + newS);
+      log(() -> "command: " + newS);
       return newS.toString();
    } // end of convertHttpToLocal()
 
@@ -862,6 +1147,9 @@ public class SendPraat
    public JSONObject processUpload(JSONObject jsonMessage, String authorization)
    {
       JSONObject jsonReply = new JSONObject("{ \"message\":\"upload\", \"error\":\"Invalid upload\", \"code\":999}");
+      long started = System.nanoTime();
+      int roundTrips = 0;
+      stats.uploadStarted();
       try
       {
 	 URL uploadUrl = new URL(jsonMessage.getString("uploadUrl"));
@@ -878,6 +1166,7 @@ public class SendPraat
 	 HttpURLConnection connection = (HttpURLConnection)uploadUrl.openConnection();
 	 try
 	 {
+	    roundTrips++;
 	    connection.getInputStream(); // throws exception if unauthorized
 	    connection.disconnect();
 	 }
@@ -889,6 +1178,7 @@ public class SendPraat
 	       for (String authorizationCandidate : FileDownloader.getAuthorizations(uploadUrl))
 	       {
 		  connection = (HttpURLConnection)uploadUrl.openConnection();
+		  roundTrips++;
 		  try
 		  {
                     if (authorizationCandidate.startsWith("Cookie ")) { // set Cookie header
@@ -908,7 +1198,7 @@ public class SendPraat
 	       } // next possible authorization
 	    } // unauthorized
 	 } // catch
-	 log("uploading "+file.getName()+"... ");
+	 log(() -> "uploading "+file.getName()+"... ");
          
 	 // now run the real request
 	 HttpRequestPostMultipart postRequest = new HttpRequestPostMultipart(uploadUrl, auth);
@@ -918,19 +1208,50 @@ public class SendPraat
 	 {
 	    postRequest.setParameter(parameter, otherParameters.get(parameter));
 	 } // next parameter
+         roundTrips++;
          connection = postRequest.post();
 	 BufferedReader reader = new BufferedReader(
 	    new InputStreamReader(connection.getInputStream()));
+	 long contentLength = connection.getContentLengthLong();
+	 boolean large = contentLength > largeUploadResponse;
 	 StringBuilder s = new StringBuilder();
-	 String sLine = reader.readLine();
-	 while (sLine != null)
+	 if (!large)
+	 { // read it whole, unless it turns out to be large after all
+	    char[] chunk = new char[8192];
+	    for (int n = reader.read(chunk); n >= 0; n = reader.read(chunk))
+	    {
+	       s.append(chunk, 0, n);
+	       if (s.length() > largeUploadResponse)
+	       {
+		  large = true;
+		  break;
+	       }
+	    } // next chunk
+	 }
+	 if (large)
+	 { // only pick out what's needed
+	    Reader rest = reader;
+	    if (s.length() > 0)
+	    { // put back what's already been read
+	       PushbackReader pushback = new PushbackReader(reader, s.length());
+	       pushback.unread(s.toString().toCharArray());
+	       s = null;
+	       rest = pushback;
+	    }
+	    try
+	    {
+	       jsonReply = summarizeUploadResponse(new JSONReader(rest));
+	    }
+	    finally
+	    {
+	       rest.close();
+	    }
+	 }
+	 else
 	 {
-	    s.append(sLine);
-	    s.append("\n");
-	    sLine = reader.readLine();
+	    reader.close();
+	    jsonReply = new JSONObject(s.toString());
 	 }
-	 reader.close();
-	 jsonReply = new JSONObject(s.toString());
 	 if (!jsonReply.has("message")) jsonReply.put("message", "upload");
 	 if (!jsonReply.has("code")) jsonReply.put("code", 0); // success
       }
@@ -954,8 +1275,93 @@ public class SendPraat
 	 jsonReply.put("error", exception.getMessage());
 	 jsonReply.put("code", 100);
       }
+      stats.uploadFinished(roundTrips, System.nanoTime() - started);
       return jsonReply;
    } // end of processUpload()
+
+   /**
+    * Reads the parts of a large upload response that the page uses, without reading the
+    * rest into memory. These are the top level values (e.g. "code", "error", "message"),
+    * the "errors" and "messages" arrays, and the top level values and "mappings" of the
+    * "model" object.
+    * @param response The response.
+    * @return The parts of the response that are needed.
+    * @throws JSONException If the response is not a JSON object.
+    */
+   protected JSONObject summarizeUploadResponse(JSONReader response)
+      throws JSONException
+   {
+      JSONObject summary = new JSONObject();
+      if (response.nextToken() != JSONReader.Token.START_OBJECT)
+      {
+	 throw new JSONException("Upload response is not an object: " + response.getString());
+      }
+      while (response.nextToken() == JSONReader.Token.KEY)
+      {
+	 String key = response.getString();
+	 if (key.equals("errors") || key.equals("messages"))
+	 {
+	    summary.put(key, response.readValue());
+	 }
+	 else if (key.equals("model"))
+	 {
+	    JSONReader.Token token = response.nextToken();
+	    if (token == JSONReader.Token.START_OBJECT)
+	    {
+	       JSONObject model = new JSONObject();
+	       while (response.nextToken() == JSONReader.Token.KEY)
+	       {
+		  String modelKey = response.getString();
+		  if (modelKey.equals("mappings"))
+		  {
+		     model.put(modelKey, response.readValue());
+		  }
+		  else
+		  {
+		     summarizeValue(response, model, modelKey);
+		  }
+	       } // next model key
+	       summary.put(key, model);
+	    }
+	    else if (token == JSONReader.Token.START_ARRAY)
+	    {
+	       response.skipToEnd();
+	    }
+	    else
+	    { // a string, number, boolean, or null
+	       summary.put(key, response.getValue());
+	    }
+	 }
+	 else
+	 {
+	    summarizeValue(response, summary, key);
+	 }
+      } // next key
+      return summary;
+   } // end of summarizeUploadResponse()
+
+   /**
+    * Reads the next value of a large upload response into the given object if it's a
+    * string, number, boolean, or null, and skips it if it's an object or array.
+    * @param response The response.
+    * @param into The object to put the value into.
+    * @param key The key of the value.
+    * @throws JSONException If the response is not valid JSON.
+    */
+   private void summarizeValue(JSONReader response, JSONObject into, String key)
+      throws JSONException
+   {
+      JSONReader.Token token = response.nextToken();
+      if (token == JSONReader.Token.START_OBJECT || token == JSONReader.Token.START_ARRAY)
+      {
+	 response.skipToEnd();
+      }
+      else
+      {
+	 into.put(key, response.getValue());
+      }
+   } // end of summarizeValue()
+
    /**
     * Invokes sendpraat, using praat --send.
     * @param programName
@@ -965,7 +1371,7 @@ public class SendPraat
     */
    private String sendpraat(String programName, long timeOut, String text)
    {
-      log("sendpraat: " + programName + " " + timeOut + " " + text);
+      log(() -> "sendpraat: " + programName + " " + timeOut + " " + text);
       try
       {
          //return sendpraatExternal(programName, timeOut, text);
@@ -993,7 +1399,7 @@ public class SendPraat
       PrintWriter writer = new PrintWriter(script, "UTF-8");
       writer.print(text);
       writer.close();
-      log("Script: " + script.getPath());
+      log(() -> "Script: " + script.getPath());
       try
       {
          String strPraat = (pathToPraat==null?"":pathToPraat) + praatProgramName;
@@ -1010,8 +1416,10 @@ public class SendPraat
                "--send",
                script.getPath()
             };
-         log(strPraat + " --send " + script.getPath());
+         log(() -> strPraat + " --send " + script.getPath());
+         long started = System.nanoTime();
          Process proc = Runtime.getRuntime().exec(win?cmdArrayWin:cmdArray);
+         stats.praatSendForked(System.nanoTime() - started);
          return null;
       }
       finally
@@ -1065,24 +1473,32 @@ public class SendPraat
       return;
    } // end of main()
    
-   // PrintWriter logWriter = null;
    /**
     * Log a message (if in verbose mode)
     * @param s The message to log
     */
    public void log(String s)
    {
-      if (verbose) System.err.println(s);
+      logger.debug(s);
    } // end of log()
 
    /**
-    * Log an error (if in verbose mode)
+    * Log a message (if in verbose mode), which is only constructed if it will be logged.
+    * @param s Supplier of the message to log
+    */
+   public void log(Supplier<String> s)
+   {
+      logger.debug(s);
+   } // end of log()
+
+   /**
+    * Log an error
     * @param s The error to log
     */
    public void logError(String s)
    {
-      System.err.println(s);
-   } // end of log()
+      logger.error(s);
+   } // end of logError()
    
    /**
     * Prints command-line usage information to stderr
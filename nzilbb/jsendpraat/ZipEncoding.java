@@ -0,0 +1,106 @@
+//
+// Copyright 2004-2024 New Zealand Institute of Language, Brain and Behaviour,
+// University of Canterbury
+// Written by Robert Fromont - robert.fromont@canterbury.ac.nz
+//
+//    This file is part of jsendpraat.
+//
+//    jsendpraat is free software; you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation; either version 2 of the License, or
+//    (at your option) any later version.
+//
+//    jsendpraat is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with jsendpraat; if not, write to the Free Software
+//    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+
+package nzilbb.jsendpraat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import org.json.JSONObject;
+import org.json.zip.BitBufferReader;
+import org.json.zip.BitOutputStream;
+import org.json.zip.Unzipper;
+import org.json.zip.Zipper;
+
+/**
+ * The "jsonzip" message encoding, which the browser can opt in to with the "version"
+ * message.
+ * <p>A message is compressed with {@link Zipper}, and the result is base64-encoded and
+ * wrapped in a message that keeps the original's "message" and "clientRef" attributes, so
+ * it can still be routed without being decoded, e.g.
+ * <pre>
+ * {
+ *   "message" : "upload",
+ *   "encoding" : "jsonzip",
+ *   "zip" : "kCjD...",
+ *   "clientRef" : "it's me"
+ * }
+ * </pre>
+ * <p>Each message is compressed independently, so messages can be decoded in any order.
+ * @author Robert Fromont robert.fromont@canterbury.ac.nz
+ */
+public class ZipEncoding
+{
+   /** The name of the encoding, as used in "version" messages and wrapped messages */
+   public static final String NAME = "jsonzip";
+
+   /**
+    * Compresses a message.
+    * @param message The message to compress.
+    * @return The compressed message.
+    */
+   public static byte[] zip(JSONObject message)
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      Zipper zipper = new Zipper(new BitOutputStream(bytes));
+      zipper.encode(message);
+      zipper.flush();
+      return bytes.toByteArray();
+   } // end of zip()
+
+   /**
+    * Decompresses a message.
+    * @param zipped The compressed message.
+    * @return The original message.
+    */
+   public static JSONObject unzip(byte[] zipped)
+   {
+      return (JSONObject)new Unzipper(new BitBufferReader(ByteBuffer.wrap(zipped))).decode();
+   } // end of unzip()
+
+   /**
+    * Compresses a message and wraps it in a "jsonzip" message.
+    * @param message The message to compress.
+    * @return The wrapped message.
+    */
+   public static JSONObject wrap(JSONObject message)
+   {
+      JSONObject wrapper = new JSONObject();
+      wrapper.put("message", message.optString("message", "sendpraat"));
+      wrapper.put("encoding", NAME);
+      wrapper.put("zip", Base64.getEncoder().encodeToString(zip(message)));
+      if (message.has("clientRef")) wrapper.put("clientRef", message.get("clientRef"));
+      return wrapper;
+   } // end of wrap()
+
+   /**
+    * Unwraps and decompresses a "jsonzip" message.
+    * @param message A message, which may or may not be wrapped.
+    * @return The original message, or the given message if it's not wrapped.
+    */
+   public static JSONObject unwrap(JSONObject message)
+   {
+      if (!NAME.equals(message.optString("encoding", null))) return message;
+      return unzip(Base64.getDecoder().decode(message.getString("zip")));
+   } // end of unwrap()
+
+} // end of class ZipEncoding
@@ -25,6 +25,8 @@ var debug = false;
 // host version checking
 var hostVersion = null;
 var hostVersionMin = "20250701.1423";
+// whether the host accepts "prefetch" messages
+var hostPrefetch = false;
 
 // host communication
 var praatPort = null;
@@ -59,6 +61,10 @@ chrome.runtime.onConnect.addListener(
             chrome.action.setBadgeText({
               tabId: port.sender.tab.id,
               text: ""+msg.urls.length });
+            // start downloading the media in the background, so it opens faster
+            if (praatPort && hostPrefetch) {
+              praatPort.postMessage({ message: "prefetch", urls: msg.urls });
+            }
 	  } else { // clear badge
             chrome.action.setBadgeText({
               tabId: port.sender.tab.id,
@@ -122,6 +128,7 @@ function checkPraatPort() {
       if (debug) console.log("praatPort: " + JSON.stringify(msg));
       if (msg.message == "version" || msg.code >= 900) {
 	hostVersion = msg.version;
+	hostPrefetch = msg.prefetch == true;
 	console.log("nzilbb.jsendpraat.chrome: Host version is " + hostVersion);
         if (hostVersion) {
           chrome.action.setTitle({
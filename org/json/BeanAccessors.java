@@ -0,0 +1,145 @@
+package org.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * The bean getters that JSONObject(Object bean) calls for each class. The
+ * public "get" and "is" methods of a class are found, and their keys worked
+ * out, the first time an instance of the class is used; after that the
+ * getters are called through MethodHandles. The getters are held in a
+ * ClassValue, so they don't stop a class from being unloaded.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+final class BeanAccessors {
+
+    /**
+     * A getter and the key its value is put under.
+     */
+    static final class Accessor {
+        final String key;
+        final MethodHandle getter;
+
+        Accessor(String key, MethodHandle getter) {
+            this.key = key;
+            this.getter = getter;
+        }
+    }
+
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Accessor[]> accessors =
+            new ClassValue<Accessor[]>() {
+        @Override
+        protected Accessor[] computeValue(Class<?> klass) {
+            return introspect(klass);
+        }
+    };
+
+    private BeanAccessors() {
+    }
+
+    /**
+     * Get the getters of a class.
+     * @param klass The class of a bean.
+     * @return The class's getters.
+     */
+    static Accessor[] forClass(Class<?> klass) {
+        return accessors.get(klass);
+    }
+
+    private static Accessor[] introspect(Class<?> klass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+// If klass is a System class then set includeSuperClass to false.
+
+        boolean includeSuperClass = klass.getClassLoader() != null;
+
+        Method[] methods = includeSuperClass ? klass.getMethods() : klass
+                .getDeclaredMethods();
+        List<Accessor> list = new ArrayList<Accessor>(methods.length);
+        for (int i = 0; i < methods.length; i += 1) {
+            Method method = methods[i];
+            if (!Modifier.isPublic(method.getModifiers())) {
+                continue;
+            }
+            String key = key(method);
+            if (key != null) {
+                try {
+                    MethodHandle getter = lookup.unreflect(method);
+                    if (Modifier.isStatic(method.getModifiers())) {
+                        getter = MethodHandles.dropArguments(getter, 0,
+                                Object.class);
+                    }
+                    list.add(new Accessor(key, getter.asType(GETTER_TYPE)));
+                } catch (IllegalAccessException ignore) {
+                    // not accessible, so not included
+                }
+            }
+        }
+        return list.toArray(new Accessor[list.size()]);
+    }
+
+    /**
+     * Work out the key for a method, if it is a bean getter.
+     * @param method A public method.
+     * @return The key, or null if the method is not a getter.
+     */
+    private static String key(Method method) {
+        String name = method.getName();
+        String key = "";
+        if (name.startsWith("get")) {
+            if ("getClass".equals(name)
+                    || "getDeclaringClass".equals(name)) {
+                key = "";
+            } else {
+                key = name.substring(3);
+            }
+        } else if (name.startsWith("is")) {
+            key = name.substring(2);
+        }
+        if (key.length() > 0
+                && Character.isUpperCase(key.charAt(0))
+                && method.getParameterTypes().length == 0) {
+            if (key.length() == 1) {
+                key = key.toLowerCase();
+            } else if (!Character.isUpperCase(key.charAt(1))) {
+                key = key.substring(0, 1).toLowerCase()
+                        + key.substring(1);
+            }
+            return key;
+        }
+        return null;
+    }
+}
@@ -1,5 +1,9 @@
 package org.json;
 
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /*
 Copyright (c) 2002 JSON.org
 
@@ -40,6 +44,9 @@ SOFTWARE.
  * A comma delimited list can be converted into a JSONArray of JSONObjects.
  * The names for the elements in the JSONObjects can be taken from the names
  * in the first row.
+ * <p>
+ * Large texts can be read a row at a time from a Reader with the
+ * <code>rows</code> methods, which return an Iterator of JSONObjects.
  * @author JSON.org
  * @version 2014-05-03
  */
@@ -49,13 +56,15 @@ public class CDL {
      * Get the next value. The value can be wrapped in quotes. The value can
      * be empty.
      * @param x A JSONTokener of the source text.
+     * @param sb A buffer for building quoted values, which is reused for
+     *  every value in the text.
      * @return The value string, or null if empty.
      * @throws JSONException if the quoted string is badly formed.
      */
-    private static String getValue(JSONTokener x) throws JSONException {
+    private static String getValue(JSONTokener x, StringBuilder sb)
+            throws JSONException {
         char c;
         char q;
-        StringBuffer sb;
         do {
             c = x.next();
         } while (c == ' ' || c == '\t');
@@ -65,7 +74,7 @@ public class CDL {
         case '"':
         case '\'':
             q = c;
-            sb = new StringBuffer();
+            sb.setLength(0);
             for (;;) {
                 c = x.next();
                 if (c == q) {
@@ -93,9 +102,21 @@ public class CDL {
      * @throws JSONException
      */
     public static JSONArray rowToJSONArray(JSONTokener x) throws JSONException {
+        return rowToJSONArray(x, new StringBuilder());
+    }
+
+    /**
+     * Produce a JSONArray of strings from a row of comma delimited values.
+     * @param x A JSONTokener of the source text.
+     * @param sb A buffer for building quoted values.
+     * @return A JSONArray of strings.
+     * @throws JSONException
+     */
+    private static JSONArray rowToJSONArray(JSONTokener x, StringBuilder sb)
+            throws JSONException {
         JSONArray ja = new JSONArray();
         for (;;) {
-            String value = getValue(x);
+            String value = getValue(x, sb);
             char c = x.next();
             if (value == null ||
                     (ja.length() == 0 && value.length() == 0 && c != ',')) {
@@ -130,10 +151,102 @@ public class CDL {
      */
     public static JSONObject rowToJSONObject(JSONArray names, JSONTokener x)
             throws JSONException {
-        JSONArray ja = rowToJSONArray(x);
+        return rowToJSONObject(names, x, new StringBuilder());
+    }
+
+    /**
+     * Produce a JSONObject from a row of comma delimited text, using a
+     * parallel JSONArray of strings to provides the names of the elements.
+     * @param names A JSONArray of names.
+     * @param x A JSONTokener of the source text.
+     * @param sb A buffer for building quoted values.
+     * @return A JSONObject combining the names and values.
+     * @throws JSONException
+     */
+    private static JSONObject rowToJSONObject(JSONArray names, JSONTokener x,
+            StringBuilder sb) throws JSONException {
+        JSONArray ja = rowToJSONArray(x, sb);
         return ja != null ? ja.toJSONObject(names) :  null;
     }
 
+    /**
+     * Produce an Iterator of JSONObjects from comma delimited text read from
+     * a Reader, using the first row as a source of names. Each row is read
+     * when the Iterator gets to it, so the text can be processed a row at a
+     * time, e.g. with <code>forEachRemaining</code>. The rows end where
+     * toJSONArray would end them. The Reader is read ahead of the rows, in
+     * blocks. A syntax error is thrown as a JSONException by
+     * <code>hasNext</code> or <code>next</code>.
+     * @param reader The source of the comma delimited text.
+     * @return An Iterator of JSONObjects.
+     * @throws JSONException If the first row can't be read.
+     */
+    public static Iterator<JSONObject> rows(Reader reader)
+            throws JSONException {
+        return rows(new JSONTokener(new UnsyncBufferedReader(reader)));
+    }
+
+    /**
+     * Produce an Iterator of JSONObjects from comma delimited text, using the
+     * first row as a source of names.
+     * @param x The JSONTokener containing the comma delimited text.
+     * @return An Iterator of JSONObjects.
+     * @throws JSONException If the first row can't be read.
+     */
+    public static Iterator<JSONObject> rows(JSONTokener x)
+            throws JSONException {
+        StringBuilder sb = new StringBuilder();
+        return new Rows(rowToJSONArray(x, sb), x, sb);
+    }
+
+    /**
+     * Produce an Iterator of JSONObjects from comma delimited text, using a
+     * supplied JSONArray as the source of element names.
+     * @param names A JSONArray of strings.
+     * @param x A JSONTokener of the source text.
+     * @return An Iterator of JSONObjects.
+     */
+    public static Iterator<JSONObject> rows(JSONArray names, JSONTokener x) {
+        return new Rows(names, x, new StringBuilder());
+    }
+
+    /**
+     * The rows of a comma delimited text, each read when it is needed.
+     */
+    private static final class Rows implements Iterator<JSONObject> {
+        private final JSONArray names;
+        private JSONObject next;
+        private final StringBuilder sb;
+        private JSONTokener x;
+
+        Rows(JSONArray names, JSONTokener x, StringBuilder sb) {
+            this.names = names;
+            this.sb = sb;
+            this.x = names == null || names.length() == 0 ? null : x;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next == null && this.x != null) {
+                this.next = rowToJSONObject(this.names, this.x, this.sb);
+                if (this.next == null) {
+                    this.x = null;
+                }
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public JSONObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JSONObject jo = this.next;
+            this.next = null;
+            return jo;
+        }
+    }
+
     /**
      * Produce a comma delimited text row from a JSONArray. Values containing
      * the comma character will be quoted. Troublesome characters may be
@@ -179,7 +292,7 @@ public class CDL {
      * @throws JSONException
      */
     public static JSONArray toJSONArray(String string) throws JSONException {
-        return toJSONArray(new JSONTokener(string));
+        return toJSONArray(new JSONBufferTokener(string));
     }
 
     /**
@@ -203,7 +316,7 @@ public class CDL {
      */
     public static JSONArray toJSONArray(JSONArray names, String string)
             throws JSONException {
-        return toJSONArray(names, new JSONTokener(string));
+        return toJSONArray(names, new JSONBufferTokener(string));
     }
 
     /**
@@ -220,12 +333,9 @@ public class CDL {
             return null;
         }
         JSONArray ja = new JSONArray();
-        for (;;) {
-            JSONObject jo = rowToJSONObject(names, x);
-            if (jo == null) {
-                break;
-            }
-            ja.put(jo);
+        Iterator<JSONObject> rows = rows(names, x);
+        while (rows.hasNext()) {
+            ja.put(rows.next());
         }
         if (ja.length() == 0) {
             return null;
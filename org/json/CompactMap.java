@@ -0,0 +1,306 @@
+package org.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * The insertion-ordered map that holds a JSONObject's properties. Most
+ * JSONObjects only have a handful of keys, so up to {@link #SMALL} entries
+ * are kept in a pair of parallel arrays and found by a linear search, which
+ * costs no per-entry nodes. When more keys are added, the entries are moved
+ * into a LinkedHashMap.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+class CompactMap extends AbstractMap<String, Object> {
+
+    /**
+     * The largest number of entries kept in arrays.
+     */
+    static final int SMALL = 8;
+
+    /**
+     * The initial size of the arrays, which grow to SMALL if needed.
+     */
+    private static final int INITIAL = 4;
+
+    private String[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Where the entries are kept once there are more than SMALL of them,
+     * or null while they are kept in the arrays.
+     */
+    private Map<String, Object> hashed;
+
+    CompactMap() {
+        this.keys = new String[INITIAL];
+        this.values = new Object[INITIAL];
+        this.size = 0;
+        this.hashed = null;
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        String[] keys = this.keys;
+        int size = this.size;
+        for (int i = 0; i < size; i += 1) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i += 1) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.hashed != null ? this.hashed.size() : this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.hashed != null ? this.hashed.containsKey(key) :
+                this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (this.hashed != null) {
+            return this.hashed.get(key);
+        }
+        int i = this.indexOf(key);
+        return i >= 0 ? this.values[i] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (this.hashed != null) {
+            return this.hashed.put(key, value);
+        }
+        if (key == null) {
+            throw new NullPointerException("Null key.");
+        }
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            Object old = this.values[i];
+            this.values[i] = value;
+            return old;
+        }
+        if (this.size == SMALL) {
+            this.hashed = new LinkedHashMap<String, Object>();
+            for (i = 0; i < this.size; i += 1) {
+                this.hashed.put(this.keys[i], this.values[i]);
+            }
+            this.keys = null;
+            this.values = null;
+            this.size = 0;
+            return this.hashed.put(key, value);
+        }
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, SMALL);
+            this.values = Arrays.copyOf(this.values, SMALL);
+        }
+        this.keys[this.size] = key;
+        this.values[this.size] = value;
+        this.size += 1;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (this.hashed != null) {
+            return this.hashed.remove(key);
+        }
+        int i = this.indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object old = this.values[i];
+        this.removeAt(i);
+        return old;
+    }
+
+    private void removeAt(int i) {
+        int moved = this.size - i - 1;
+        System.arraycopy(this.keys, i + 1, this.keys, i, moved);
+        System.arraycopy(this.values, i + 1, this.values, i, moved);
+        this.size -= 1;
+        this.keys[this.size] = null;
+        this.values[this.size] = null;
+    }
+
+    @Override
+    public void clear() {
+        if (this.hashed != null) {
+            this.hashed.clear();
+        } else {
+            for (int i = 0; i < this.size; i += 1) {
+                this.keys[i] = null;
+                this.values[i] = null;
+            }
+            this.size = 0;
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            public int size() {
+                return CompactMap.this.size();
+            }
+            public boolean contains(Object key) {
+                return CompactMap.this.containsKey(key);
+            }
+            public Iterator<String> iterator() {
+                if (CompactMap.this.hashed != null) {
+                    return CompactMap.this.hashed.keySet().iterator();
+                }
+                return new ArrayIterator<String>() {
+                    String get(int i) {
+                        return CompactMap.this.keys[i];
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            public int size() {
+                return CompactMap.this.size();
+            }
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                if (CompactMap.this.hashed != null) {
+                    return CompactMap.this.hashed.entrySet().iterator();
+                }
+                return new ArrayIterator<Map.Entry<String, Object>>() {
+                    Map.Entry<String, Object> get(int i) {
+                        return new ArrayEntry(i);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Iterates over the entries while they are kept in the arrays.
+     */
+    private abstract class ArrayIterator<E> implements Iterator<E> {
+        private int next = 0;
+        private boolean removable = false;
+
+        abstract E get(int i);
+
+        public boolean hasNext() {
+            return CompactMap.this.hashed == null
+                    && this.next < CompactMap.this.size;
+        }
+
+        public E next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.removable = true;
+            return this.get(this.next++);
+        }
+
+        public void remove() {
+            if (!this.removable || CompactMap.this.hashed != null) {
+                throw new IllegalStateException();
+            }
+            this.next -= 1;
+            CompactMap.this.removeAt(this.next);
+            this.removable = false;
+        }
+    }
+
+    /**
+     * An entry while it is kept in the arrays.
+     */
+    private class ArrayEntry implements Map.Entry<String, Object> {
+        private final String key;
+        private final int index;
+
+        ArrayEntry(int index) {
+            this.key = CompactMap.this.keys[index];
+            this.index = index;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public Object getValue() {
+            return CompactMap.this.get(this.key);
+        }
+
+        public Object setValue(Object value) {
+            if (CompactMap.this.hashed == null
+                    && this.index < CompactMap.this.size
+                    && CompactMap.this.keys[this.index] == this.key) {
+                Object old = CompactMap.this.values[this.index];
+                CompactMap.this.values[this.index] = value;
+                return old;
+            }
+            return CompactMap.this.put(this.key, value);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object value = this.getValue();
+            return this.key.equals(e.getKey()) && (value == null ?
+                    e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        public int hashCode() {
+            Object value = this.getValue();
+            return this.key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return this.key + "=" + this.getValue();
+        }
+    }
+}
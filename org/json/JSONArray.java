@@ -73,6 +73,12 @@ import java.util.Map;
  * if they are not the reserved words <code>true</code>, <code>false</code>, or
  * <code>null</code>.</li>
  * </ul>
+ * <p>
+ * An array that holds only Integers, Longs, and Doubles keeps them in
+ * primitive arrays rather than as boxed Numbers, until something else is put
+ * in it. The typed <code>get</code> and <code>opt</code> methods, and
+ * <code>toDoubleArray</code> and <code>toLongArray</code>, read them without
+ * boxing.
  *
  * @author JSON.org
  * @version 2014-05-03
@@ -80,15 +86,20 @@ import java.util.Map;
 public class JSONArray {
 
     /**
-     * The arrayList where the JSONArray's properties are kept.
+     * The arrayList where the JSONArray's properties are kept, or null while
+     * they are all numbers, or there are none.
+     */
+    private ArrayList<Object> myArrayList;
+
+    /**
+     * The JSONArray's properties while they are all numbers, or null.
      */
-    private final ArrayList<Object> myArrayList;
+    private NumberList numbers;
 
     /**
      * Construct an empty JSONArray.
      */
     public JSONArray() {
-        this.myArrayList = new ArrayList<Object>();
     }
 
     /**
@@ -109,10 +120,10 @@ public class JSONArray {
             for (;;) {
                 if (x.nextClean() == ',') {
                     x.back();
-                    this.myArrayList.add(JSONObject.NULL);
+                    this.put(JSONObject.NULL);
                 } else {
                     x.back();
-                    this.myArrayList.add(x.nextValue());
+                    this.put(x.nextValue());
                 }
                 switch (x.nextClean()) {
                 case ',':
@@ -141,7 +152,7 @@ public class JSONArray {
      *             If there is a syntax error.
      */
     public JSONArray(String source) throws JSONException {
-        this(new JSONTokener(source));
+        this(new JSONBufferTokener(source));
     }
 
     /**
@@ -151,11 +162,10 @@ public class JSONArray {
      *            A Collection.
      */
     public JSONArray(Collection<Object> collection) {
-        this.myArrayList = new ArrayList<Object>();
         if (collection != null) {
             Iterator<Object> iter = collection.iterator();
             while (iter.hasNext()) {
-                this.myArrayList.add(JSONObject.wrap(iter.next()));
+                this.put(JSONObject.wrap(iter.next()));
             }
         }
     }
@@ -232,6 +242,9 @@ public class JSONArray {
      *             to a number.
      */
     public double getDouble(int index) throws JSONException {
+        if (this.numbers != null && index >= 0 && index < this.numbers.size()) {
+            return this.numbers.getDouble(index);
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number ? ((Number) object).doubleValue()
@@ -251,6 +264,9 @@ public class JSONArray {
      *             If the key is not found or if the value is not a number.
      */
     public int getInt(int index) throws JSONException {
+        if (this.numbers != null && index >= 0 && index < this.numbers.size()) {
+            return this.numbers.getInt(index);
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number ? ((Number) object).intValue()
@@ -307,6 +323,9 @@ public class JSONArray {
      *             to a number.
      */
     public long getLong(int index) throws JSONException {
+        if (this.numbers != null && index >= 0 && index < this.numbers.size()) {
+            return this.numbers.getLong(index);
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number ? ((Number) object).longValue()
@@ -363,7 +382,7 @@ public class JSONArray {
             if (i > 0) {
                 sb.append(separator);
             }
-            sb.append(JSONObject.valueToString(this.myArrayList.get(i)));
+            sb.append(JSONObject.valueToString(this.opt(i)));
         }
         return sb.toString();
     }
@@ -374,7 +393,10 @@ public class JSONArray {
      * @return The length (or size).
      */
     public int length() {
-        return this.myArrayList.size();
+        if (this.myArrayList != null) {
+            return this.myArrayList.size();
+        }
+        return this.numbers == null ? 0 : this.numbers.size();
     }
 
     /**
@@ -385,8 +407,11 @@ public class JSONArray {
      * @return An object value, or null if there is no object at that index.
      */
     public Object opt(int index) {
-        return (index < 0 || index >= this.length()) ? null : this.myArrayList
-                .get(index);
+        if (index < 0 || index >= this.length()) {
+            return null;
+        }
+        return this.myArrayList != null ? this.myArrayList.get(index)
+                : this.numbers.get(index);
     }
 
     /**
@@ -608,9 +633,13 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(double value) throws JSONException {
-        Double d = Double.valueOf(value);
-        JSONObject.testValidity(d);
-        this.put(d);
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+        if (this.myArrayList == null && this.numbers().addDouble(value)) {
+            return this;
+        }
+        this.put(Double.valueOf(value));
         return this;
     }
 
@@ -622,6 +651,9 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(int value) {
+        if (this.myArrayList == null && this.numbers().addInteger(value)) {
+            return this;
+        }
         this.put(Integer.valueOf(value));
         return this;
     }
@@ -661,6 +693,12 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(Object value) {
+        if (this.myArrayList == null) {
+            if (value instanceof Number && this.numbers().add(value)) {
+                return this;
+            }
+            this.toList();
+        }
         this.myArrayList.add(value);
         return this;
     }
@@ -794,6 +832,12 @@ public class JSONArray {
             throw new JSONException("JSONArray[" + index + "] not found.");
         }
         if (index < this.length()) {
+            if (this.myArrayList == null) {
+                if (this.numbers.set(index, value)) {
+                    return this;
+                }
+                this.toList();
+            }
             this.myArrayList.set(index, value);
         } else {
             while (index != this.length()) {
@@ -813,9 +857,84 @@ public class JSONArray {
      *         was no value.
      */
     public Object remove(int index) {
-        return index >= 0 && index < this.length()
-            ? this.myArrayList.remove(index)
-            : null;
+        if (index < 0 || index >= this.length()) {
+            return null;
+        }
+        if (this.myArrayList != null) {
+            return this.myArrayList.remove(index);
+        }
+        Object value = this.numbers.get(index);
+        this.numbers.remove(index);
+        return value;
+    }
+
+    /**
+     * Get all the values as doubles, as getDouble would.
+     *
+     * @return A new array of the values.
+     * @throws JSONException
+     *             If a value cannot be converted to a number.
+     */
+    public double[] toDoubleArray() throws JSONException {
+        if (this.myArrayList == null && this.numbers != null) {
+            return this.numbers.toDoubleArray();
+        }
+        double[] values = new double[this.length()];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = this.getDouble(i);
+        }
+        return values;
+    }
+
+    /**
+     * Get all the values as longs, as getLong would.
+     *
+     * @return A new array of the values.
+     * @throws JSONException
+     *             If a value cannot be converted to a number.
+     */
+    public long[] toLongArray() throws JSONException {
+        if (this.myArrayList == null && this.numbers != null) {
+            return this.numbers.toLongArray();
+        }
+        long[] values = new long[this.length()];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = this.getLong(i);
+        }
+        return values;
+    }
+
+    /**
+     * Get the numbers the values are kept in, if they are all numbers.
+     *
+     * @return The numbers, or null if the values are kept in a list.
+     */
+    NumberList numberList() {
+        return this.myArrayList == null ? this.numbers : null;
+    }
+
+    /**
+     * Get the numbers, making them if there are no values yet. Only to be
+     * called while the values are not kept in a list.
+     */
+    private NumberList numbers() {
+        if (this.numbers == null) {
+            this.numbers = new NumberList();
+        }
+        return this.numbers;
+    }
+
+    /**
+     * Start keeping the values in a list, because a value that isn't a number
+     * is being added.
+     */
+    private void toList() {
+        if (this.numbers == null) {
+            this.myArrayList = new ArrayList<Object>();
+        } else {
+            this.myArrayList = this.numbers.toList();
+            this.numbers = null;
+        }
     }
 
     /**
@@ -946,7 +1065,7 @@ public class JSONArray {
             writer.write('[');
 
             if (length == 1) {
-                JSONObject.writeValue(writer, this.myArrayList.get(0),
+                JSONObject.writeValue(writer, this.opt(0),
                         indentFactor, indent);
             } else if (length != 0) {
                 final int newindent = indent + indentFactor;
@@ -959,7 +1078,7 @@ public class JSONArray {
                         writer.write('\n');
                     }
                     JSONObject.indent(writer, newindent);
-                    JSONObject.writeValue(writer, this.myArrayList.get(i),
+                    JSONObject.writeValue(writer, this.opt(i),
                             indentFactor, newindent);
                     commanate = true;
                 }
@@ -0,0 +1,536 @@
+package org.json;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A JSONBufferTokener is a JSONTokener for text that is already in memory,
+ * as a String, char array, or UTF-8 byte array. Rather than reading one
+ * character at a time from a Reader, it scans the backing array with an
+ * index, so strings and unquoted values are extracted in bulk. The line and
+ * character position of the tokener are only worked out when they're needed
+ * for a syntax error message.
+ * <p>
+ * It can be used anywhere a JSONTokener can, e.g.
+ * <code>new JSONObject(new JSONBufferTokener(bytes))</code>.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+public class JSONBufferTokener extends JSONTokener {
+
+    private final char[] buffer;
+    private final int start;
+    private final int end;
+    /** Index of the next character. This is end + 1 once past the end. */
+    private int position;
+    /** Whether the last move was back() */
+    private boolean backed;
+    /**
+     * The number of times a newline has been stopped at. JSONTokener would
+     * have read it and stepped back, and so counts its line again each time
+     * it is read. This keeps the positions in error messages the same as
+     * JSONTokener's.
+     */
+    private long stops;
+    /** The index of the last character stopped at */
+    private int stop = -1;
+
+
+    /**
+     * Construct a JSONBufferTokener from a string.
+     *
+     * @param s     A source string.
+     */
+    public JSONBufferTokener(String s) {
+        this(s.toCharArray());
+    }
+
+
+    /**
+     * Construct a JSONBufferTokener from a char array.
+     *
+     * @param chars     The source characters.
+     */
+    public JSONBufferTokener(char[] chars) {
+        this(chars, 0, chars.length);
+    }
+
+
+    /**
+     * Construct a JSONBufferTokener from part of a char array. The array is
+     * not copied, so it must not be changed while the tokener is in use.
+     *
+     * @param chars     The source characters.
+     * @param offset    The index of the first source character.
+     * @param length    The number of source characters.
+     */
+    public JSONBufferTokener(char[] chars, int offset, int length) {
+        super();
+        this.buffer = chars;
+        this.start = offset;
+        this.end = offset + length;
+        this.position = offset;
+        this.backed = false;
+    }
+
+
+    /**
+     * Construct a JSONBufferTokener from UTF-8 encoded bytes.
+     *
+     * @param bytes     The UTF-8 source.
+     */
+    public JSONBufferTokener(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+
+    /**
+     * Construct a JSONBufferTokener from part of an array of UTF-8 encoded
+     * bytes.
+     *
+     * @param bytes     The UTF-8 source.
+     * @param offset    The index of the first source byte.
+     * @param length    The number of source bytes.
+     */
+    public JSONBufferTokener(byte[] bytes, int offset, int length) {
+        this(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes, offset, length)));
+    }
+
+
+    private JSONBufferTokener(CharBuffer chars) {
+        this(chars.array(), chars.arrayOffset() + chars.position(),
+                chars.remaining());
+    }
+
+
+    /**
+     * Back up one character.
+     */
+    @Override
+    public void back() throws JSONException {
+        if (this.backed || this.position <= this.start) {
+            throw new JSONException("Stepping back two steps is not supported");
+        }
+        this.position -= 1;
+        this.backed = true;
+        stopAt(this.position);
+    }
+
+
+    /**
+     * Note that the character at an index has been stopped at, where
+     * JSONTokener would have read it and stepped back.
+     * @param i The index of the character.
+     */
+    private void stopAt(int i) {
+        if (i < this.end) {
+            char c = this.buffer[i];
+            if (c == '\n' || c == '\r') {
+                this.stops += 1;
+            }
+            this.stop = i;
+        }
+    }
+
+
+    @Override
+    public boolean end() {
+        return this.position > this.end;
+    }
+
+
+    /**
+     * Get the next character in the source.
+     *
+     * @return The next character, or 0 if past the end of the source.
+     */
+    @Override
+    public char next() throws JSONException {
+        this.backed = false;
+        if (this.position >= this.end) {
+            this.position = this.end + 1;
+            return 0;
+        }
+        return this.buffer[this.position++];
+    }
+
+
+    /**
+     * Get the next n characters.
+     *
+     * @param n     The number of characters to take.
+     * @return      A string of n characters.
+     * @throws JSONException
+     *   Substring bounds error if there are not
+     *   n characters remaining in the source string.
+     */
+    @Override
+    public String next(int n) throws JSONException {
+        if (n == 0) {
+            return "";
+        }
+        if (this.position + n > this.end) {
+            this.position = this.end + 1;
+            throw this.syntaxError("Substring bounds error");
+        }
+        String s = new String(this.buffer, this.position, n);
+        this.position += n;
+        this.backed = false;
+        return s;
+    }
+
+
+    /**
+     * Get the next char in the source, skipping whitespace.
+     * @throws JSONException
+     * @return  A character, or 0 if there are no more characters.
+     */
+    @Override
+    public char nextClean() throws JSONException {
+        this.backed = false;
+        while (this.position < this.end) {
+            char c = this.buffer[this.position++];
+            if (c == 0 || c > ' ') {
+                return c;
+            }
+        }
+        this.position = this.end + 1;
+        return 0;
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character.
+     * Backslash processing is done. Characters between escapes are copied in
+     * bulk, and if there are no escapes, the string is taken directly from
+     * the source.
+     * @param quote The quoting character, either
+     *      <code>"</code>&nbsp;<small>(double quote)</small> or
+     *      <code>'</code>&nbsp;<small>(single quote)</small>.
+     * @return      A String.
+     * @throws JSONException Unterminated string.
+     */
+    @Override
+    public String nextString(char quote) throws JSONException {
+        this.backed = false;
+        StringBuilder sb = null;
+        int runStart = this.position;
+        for (;;) {
+            if (this.position >= this.end) {
+                this.position = this.end + 1;
+                throw this.syntaxError("Unterminated string");
+            }
+            char c = this.buffer[this.position++];
+            if (c == quote) {
+                int runLength = this.position - 1 - runStart;
+                if (sb == null) {
+                    return new String(this.buffer, runStart, runLength);
+                }
+                sb.append(this.buffer, runStart, runLength);
+                return sb.toString();
+            }
+            switch (c) {
+            case 0:
+            case '\n':
+            case '\r':
+                throw this.syntaxError("Unterminated string");
+            case '\\':
+                if (sb == null) {
+                    sb = new StringBuilder(this.position - runStart + 16);
+                }
+                sb.append(this.buffer, runStart, this.position - 1 - runStart);
+                c = this.next();
+                switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'u':
+                    sb.append((char)Integer.parseInt(this.next(4), 16));
+                    break;
+                case '"':
+                case '\'':
+                case '\\':
+                case '/':
+                    sb.append(c);
+                    break;
+                default:
+                    throw this.syntaxError("Illegal escape.");
+                }
+                runStart = this.position;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Get the text up but not including the specified character or the
+     * end of line, whichever comes first.
+     * @param  delimiter A delimiter character.
+     * @return   A string.
+     */
+    @Override
+    public String nextTo(char delimiter) throws JSONException {
+        this.backed = false;
+        int from = this.position;
+        while (this.position < this.end) {
+            char c = this.buffer[this.position];
+            if (c == delimiter || c == 0 || c == '\n' || c == '\r') {
+                stopAt(this.position);
+                break;
+            }
+            this.position += 1;
+        }
+        return new String(this.buffer, from, this.position - from).trim();
+    }
+
+
+    /**
+     * Get the text up but not including one of the specified delimiter
+     * characters or the end of line, whichever comes first.
+     * @param delimiters A set of delimiter characters.
+     * @return A string, trimmed.
+     */
+    @Override
+    public String nextTo(String delimiters) throws JSONException {
+        this.backed = false;
+        int from = this.position;
+        while (this.position < this.end) {
+            char c = this.buffer[this.position];
+            if (delimiters.indexOf(c) >= 0 || c == 0 || c == '\n' || c == '\r') {
+                stopAt(this.position);
+                break;
+            }
+            this.position += 1;
+        }
+        return new String(this.buffer, from, this.position - from).trim();
+    }
+
+
+    /**
+     * Get the next value. The value can be a Boolean, Double, Integer,
+     * JSONArray, JSONObject, Long, or String, or the JSONObject.NULL object.
+     * @throws JSONException If syntax error.
+     *
+     * @return An object.
+     */
+    @Override
+    public Object nextValue() throws JSONException {
+        char c = this.nextClean();
+
+        switch (c) {
+            case '"':
+            case '\'':
+                return this.nextString(c);
+            case '{':
+                this.back();
+                return new JSONObject(this);
+            case '[':
+                this.back();
+                return new JSONArray(this);
+        }
+
+        /*
+         * Handle unquoted text, up to the end of the text or a formatting
+         * character.
+         */
+
+        int from = this.position - 1;
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            c = this.next();
+        }
+        this.back();
+
+        int to = this.position;
+        while (from < to && this.buffer[from] <= ' ') {
+            from += 1;
+        }
+        while (to > from && this.buffer[to - 1] <= ' ') {
+            to -= 1;
+        }
+        Number integer = integerValue(this.buffer, from, to);
+        if (integer != null) {
+            return integer;
+        }
+        String string = new String(this.buffer, from, to - from);
+        if ("".equals(string)) {
+            throw this.syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(string);
+    }
+
+
+    /**
+     * Convert a short integer straight from the buffer, without making a
+     * String, if it is written the way JSONObject.stringToValue would convert
+     * it: an optional '-' and up to 18 digits, without leading zeros and not
+     * "-0".
+     * @param buffer The characters.
+     * @param from The index of the first character.
+     * @param to The index after the last character.
+     * @return An Integer or a Long, or null if the text is anything else.
+     */
+    private static Number integerValue(char[] buffer, int from, int to) {
+        boolean negative = from < to && buffer[from] == '-';
+        int start = negative ? from + 1 : from;
+        int digits = to - start;
+        if (digits < 1 || digits > 18
+                || (buffer[start] == '0' && (digits > 1 || negative))) {
+            return null;
+        }
+        long result = 0;
+        for (int i = start; i < to; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            result = result * 10 + (c - '0');
+        }
+        if (negative) {
+            result = -result;
+        }
+        if (result == (int) result) {
+            return Integer.valueOf((int) result);
+        }
+        return Long.valueOf(result);
+    }
+
+
+    /**
+     * Get the next key of a JSONObject. A quoted key without escapes is
+     * looked up in the key dictionary directly from the source, so no String
+     * is made for keys that have been seen before.
+     * @throws JSONException If syntax error.
+     *
+     * @return A key.
+     */
+    @Override
+    public String nextKey() throws JSONException {
+        char quote = this.nextClean();
+        if (quote == '"' || quote == '\'') {
+            for (int i = this.position; i < this.end; i++) {
+                char c = this.buffer[i];
+                if (c == quote) {
+                    int from = this.position;
+                    this.position = i + 1;
+                    return KeyDictionary.intern(this.buffer, from, i - from);
+                }
+                if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+            }
+            return KeyDictionary.intern(this.nextString(quote));
+        }
+        this.back();
+        return KeyDictionary.intern(this.nextValue().toString());
+    }
+
+
+    /**
+     * Skip characters until the next character is the requested character.
+     * If the requested character is not found, no characters are skipped.
+     * @param to A character to skip to.
+     * @return The requested character, or zero if the requested character
+     * is not found.
+     */
+    @Override
+    public char skipTo(char to) throws JSONException {
+        for (int i = this.position; i < this.end; i++) {
+            if (this.buffer[i] == to) {
+                this.position = i;
+                this.backed = false;
+                stopAt(i);
+                return to;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Make a printable string of this JSONBufferTokener. The line and
+     * character are worked out from the characters consumed so far.
+     *
+     * @return " at {index} [character {character} line {line}]"
+     */
+    @Override
+    public String toString() {
+        long index = 0;
+        long character = 1;
+        long line = 1;
+        char previous = 0;
+        boolean stopped = this.stop == this.position;
+        int consumed = Math.min(this.position, this.end) + (stopped ? 1 : 0);
+        for (int i = this.start; i < consumed; i++) {
+            char c = this.buffer[i];
+            index += 1;
+            if (previous == '\r') {
+                line += 1;
+                character = c == '\n' ? 0 : 1;
+            } else if (c == '\n') {
+                line += 1;
+                character = 0;
+            } else {
+                character += 1;
+            }
+            previous = c;
+        }
+        if (this.position > this.end) { // past the end, which reads as 0
+            index += 1;
+            if (previous == '\r') {
+                line += 1;
+                character = 1;
+            } else {
+                character += 1;
+            }
+        } else if (stopped) { // read and stepped back over
+            index -= 1;
+            character -= 1;
+            if (previous == '\n' || previous == '\r') {
+                line -= 1;
+            }
+        }
+        line += this.stops;
+        return " at " + index + " [character " + character + " line " +
+            line + "]";
+    }
+}
@@ -0,0 +1,449 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+Copyright (c) 2006 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * JSONByteWriter serializes JSON values as UTF-8 straight into an
+ * OutputStream or a ByteBuffer. Strings are quoted and encoded in place, and
+ * integers are written digit by digit, so no intermediate Strings are made
+ * for the text as a whole, or for its keys and values. The bytes written are
+ * exactly the UTF-8 encoding of <code>JSONObject.toString()</code>.
+ * <p>
+ * Output is collected in a small internal buffer, which is passed on when it
+ * fills up, and when {@link #flush()} is called. A JSONByteWriter can be used
+ * for any number of values; it is not thread-safe.
+ * <pre>
+ * new JSONByteWriter(out).write(jsonObject).flush();
+ * </pre>
+ * <p>
+ * Warning: This class assumes that the data structure is acyclical.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+public class JSONByteWriter {
+
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    /**
+     * The largest number of bytes a single char can need, i.e. the six
+     * bytes of an escaped control character.
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private final OutputStream out;
+    private final ByteBuffer target;
+    private final byte[] buffer;
+    private int count;
+    private long written;
+
+
+    /**
+     * Make a JSONByteWriter that writes to an OutputStream.
+     * @param out The stream to write UTF-8 to.
+     */
+    public JSONByteWriter(OutputStream out) {
+        this(out, null, 8192);
+    }
+
+
+    /**
+     * Make a JSONByteWriter that writes into a ByteBuffer, from its current
+     * position.
+     * @param target The buffer to write UTF-8 into. If it fills up, a
+     * BufferOverflowException is thrown.
+     */
+    public JSONByteWriter(ByteBuffer target) {
+        this(null, target, 1024);
+    }
+
+
+    private JSONByteWriter(OutputStream out, ByteBuffer target, int size) {
+        this.out = out;
+        this.target = target;
+        this.buffer = new byte[size];
+        this.count = 0;
+        this.written = 0;
+    }
+
+
+    /**
+     * Serialize a UTF-8 JSON text into an OutputStream. The stream is not
+     * flushed.
+     * @param value A JSONObject, JSONArray, or other value.
+     * @param out The stream to write to.
+     * @return The number of bytes written.
+     * @throws JSONException If the value is or contains an invalid number, or
+     * the stream could not be written to.
+     */
+    public static long write(Object value, OutputStream out)
+            throws JSONException {
+        return new JSONByteWriter(out).write(value).flush().length();
+    }
+
+
+    /**
+     * Serialize a UTF-8 JSON text into a ByteBuffer, from its current
+     * position.
+     * @param value A JSONObject, JSONArray, or other value.
+     * @param target The buffer to write into.
+     * @return The number of bytes written.
+     * @throws JSONException If the value is or contains an invalid number.
+     * @throws java.nio.BufferOverflowException If the text does not fit in
+     * the buffer.
+     */
+    public static long write(Object value, ByteBuffer target)
+            throws JSONException {
+        return new JSONByteWriter(target).write(value).flush().length();
+    }
+
+
+    /**
+     * The number of bytes written so far, including any that have not been
+     * flushed yet.
+     * @return The number of bytes.
+     */
+    public long length() {
+        return this.written + this.count;
+    }
+
+
+    /**
+     * Discard any bytes that have not been passed on yet, and start counting
+     * the length from zero again, e.g. after a failed write.
+     * @return this
+     */
+    public JSONByteWriter reset() {
+        this.count = 0;
+        this.written = 0;
+        return this;
+    }
+
+
+    /**
+     * Pass any buffered bytes on to the OutputStream or ByteBuffer. The
+     * OutputStream itself is not flushed.
+     * @return this
+     * @throws JSONException If the stream could not be written to.
+     */
+    public JSONByteWriter flush() throws JSONException {
+        if (this.count > 0) {
+            if (this.out != null) {
+                try {
+                    this.out.write(this.buffer, 0, this.count);
+                } catch (IOException exception) {
+                    throw new JSONException(exception);
+                }
+            } else {
+                this.target.put(this.buffer, 0, this.count);
+            }
+            this.written += this.count;
+            this.count = 0;
+        }
+        return this;
+    }
+
+
+    /**
+     * Serialize a value. JSONObjects, JSONArrays, Maps, Collections and
+     * arrays are written as JSON texts, other values the same way as they
+     * would be in a JSONObject.
+     * @param value The value to write.
+     * @return this
+     * @throws JSONException If the value is or contains an invalid number, or
+     * the stream could not be written to.
+     */
+    public JSONByteWriter write(Object value) throws JSONException {
+        if (value == null || value.equals(null)) {
+            this.append(NULL);
+        } else if (value instanceof String) {
+            this.quote((String) value);
+        } else if (value instanceof JSONObject) {
+            this.writeObject((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            this.writeArray((JSONArray) value);
+        } else if (value instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> v = (Map<String, Object>) value;
+            this.writeObject(new JSONObject(v));
+        } else if (value instanceof Collection) {
+            @SuppressWarnings("unchecked")
+            Collection<Object> v = (Collection<Object>) value;
+            this.writeArray(new JSONArray(v));
+        } else if (value.getClass().isArray()) {
+            this.writeArray(new JSONArray(value));
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            this.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            this.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Number) {
+            this.raw(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean) {
+            this.append(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value instanceof JSONString) {
+            Object o;
+            try {
+                o = ((JSONString) value).toJSONString();
+            } catch (Exception e) {
+                throw new JSONException(e);
+            }
+            if (o != null) {
+                this.raw(o.toString());
+            } else {
+                this.quote(value.toString());
+            }
+        } else {
+            this.quote(value.toString());
+        }
+        return this;
+    }
+
+
+    private void writeObject(JSONObject jo) throws JSONException {
+        this.append('{');
+        boolean commanate = false;
+        Iterator<String> keys = jo.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (commanate) {
+                this.append(',');
+            }
+            this.quote(key);
+            this.append(':');
+            this.write(jo.opt(key));
+            commanate = true;
+        }
+        this.append('}');
+    }
+
+
+    private void writeArray(JSONArray ja) throws JSONException {
+        this.append('[');
+        NumberList numbers = ja.numberList();
+        if (numbers != null) {
+            // straight from the primitives, without boxing them
+            int length = numbers.size();
+            for (int i = 0; i < length; i += 1) {
+                if (i > 0) {
+                    this.append(',');
+                }
+                if (numbers.isInteger(i)) {
+                    this.writeLong(numbers.getLong(i));
+                } else {
+                    this.writeDouble(numbers.getDouble(i));
+                }
+            }
+            this.append(']');
+            return;
+        }
+        int length = ja.length();
+        for (int i = 0; i < length; i += 1) {
+            if (i > 0) {
+                this.append(',');
+            }
+            this.write(ja.opt(i));
+        }
+        this.append(']');
+    }
+
+
+    /**
+     * Make sure there is room in the buffer for n more bytes.
+     */
+    private void require(int n) throws JSONException {
+        if (this.count + n > this.buffer.length) {
+            this.flush();
+        }
+    }
+
+
+    private void append(char c) throws JSONException {
+        this.require(1);
+        this.buffer[this.count++] = (byte) c;
+    }
+
+
+    private void append(byte[] bytes) throws JSONException {
+        this.require(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+        this.count += bytes.length;
+    }
+
+
+    private void writeLong(long l) throws JSONException {
+        if (l == Long.MIN_VALUE) {
+            this.raw(Long.toString(l));
+            return;
+        }
+        this.require(20);
+        if (l < 0) {
+            this.buffer[this.count++] = '-';
+            l = -l;
+        }
+        int digits = 1;
+        for (long p = 10; digits < 19 && l >= p; p *= 10) {
+            digits += 1;
+        }
+        int i = this.count + digits;
+        this.count = i;
+        do {
+            this.buffer[--i] = (byte) ('0' + (l % 10));
+            l /= 10;
+        } while (l != 0);
+    }
+
+
+    private void writeDouble(double d) throws JSONException {
+        if (Double.isInfinite(d) || Double.isNaN(d)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+        this.require(DoubleFormatter.MAX_LENGTH);
+        this.count += DoubleFormatter.format(d, this.buffer, this.count);
+    }
+
+
+    /**
+     * Write a string as UTF-8, without quoting or escaping.
+     */
+    private void raw(String string) throws JSONException {
+        int len = string.length();
+        for (int i = 0; i < len; i += 1) {
+            char c = string.charAt(i);
+            this.require(MAX_CHAR_BYTES);
+            if (c < 0x80) {
+                this.buffer[this.count++] = (byte) c;
+            } else {
+                i = this.encode(string, i, c);
+            }
+        }
+    }
+
+
+    /**
+     * Write a string as a quoted JSON string, escaped in the same way as
+     * {@link JSONObject#quote(String)}.
+     */
+    private void quote(String string) throws JSONException {
+        this.append('"');
+        int len = string.length();
+        char c = 0;
+        for (int i = 0; i < len; i += 1) {
+            char b = c;
+            c = string.charAt(i);
+            this.require(MAX_CHAR_BYTES);
+            byte[] buf = this.buffer;
+            if (c >= ' ' && c < 0x80) {
+                if (c == '"' || c == '\\' || (c == '/' && b == '<')) {
+                    buf[this.count++] = '\\';
+                }
+                buf[this.count++] = (byte) c;
+                continue;
+            }
+            switch (c) {
+            case '\b':
+                buf[this.count++] = '\\';
+                buf[this.count++] = 'b';
+                break;
+            case '\t':
+                buf[this.count++] = '\\';
+                buf[this.count++] = 't';
+                break;
+            case '\n':
+                buf[this.count++] = '\\';
+                buf[this.count++] = 'n';
+                break;
+            case '\f':
+                buf[this.count++] = '\\';
+                buf[this.count++] = 'f';
+                break;
+            case '\r':
+                buf[this.count++] = '\\';
+                buf[this.count++] = 'r';
+                break;
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
+                        || (c >= '\u2000' && c < '\u2100')) {
+                    buf[this.count++] = '\\';
+                    buf[this.count++] = 'u';
+                    buf[this.count++] = HEX[(c >>> 12) & 0xf];
+                    buf[this.count++] = HEX[(c >>> 8) & 0xf];
+                    buf[this.count++] = HEX[(c >>> 4) & 0xf];
+                    buf[this.count++] = HEX[c & 0xf];
+                } else {
+                    i = this.encode(string, i, c);
+                }
+            }
+        }
+        this.append('"');
+    }
+
+
+    /**
+     * Encode a non-ASCII char as UTF-8. There must be room in the buffer for
+     * four bytes.
+     * @param string The string the char comes from.
+     * @param i The index of the char.
+     * @param c The char.
+     * @return The index of the last char used, which is i + 1 for a
+     * surrogate pair.
+     */
+    private int encode(String string, int i, char c) {
+        byte[] buf = this.buffer;
+        if (c < 0x800) {
+            buf[this.count++] = (byte) (0xc0 | (c >> 6));
+            buf[this.count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, string.charAt(i + 1));
+                buf[this.count++] = (byte) (0xf0 | (cp >> 18));
+                buf[this.count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[this.count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[this.count++] = (byte) (0x80 | (cp & 0x3f));
+                return i + 1;
+            }
+            // unpaired surrogates can't be encoded
+            buf[this.count++] = '?';
+        } else {
+            buf[this.count++] = (byte) (0xe0 | (c >> 12));
+            buf[this.count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[this.count++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+}
@@ -28,11 +28,8 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.LinkedHashMap; // robert@fromont.net.nz changed from HashMap to respect insertion ordering
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -137,7 +134,7 @@ public class JSONObject {
     }
 
     /**
-     * The map where the JSONObject's properties are kept.
+     * The map where the JSONObject's properties are kept, in insertion order.
      */
     private final Map<String, Object> map;
 
@@ -153,7 +150,7 @@ public class JSONObject {
      * Construct an empty JSONObject.
      */
     public JSONObject() {
-        this.map = new LinkedHashMap<String, Object>();
+        this.map = new CompactMap();
     }
 
     /**
@@ -206,7 +203,7 @@ public class JSONObject {
                 return;
             default:
                 x.back();
-                key = x.nextValue().toString();
+                key = x.nextKey();
             }
 
 // The key is followed by ':'.
@@ -244,7 +241,7 @@ public class JSONObject {
      * @throws JSONException
      */
     public JSONObject(Map<String, Object> map) {
-        this.map = new LinkedHashMap<String, Object>();
+        this.map = new CompactMap();
         if (map != null) {
             Iterator<Entry<String, Object>> i = map.entrySet().iterator();
             while (i.hasNext()) {
@@ -323,7 +320,7 @@ public class JSONObject {
      *                duplicated key.
      */
     public JSONObject(String source) throws JSONException {
-        this(new JSONTokener(source));
+        this(new JSONBufferTokener(source));
     }
 
     /**
@@ -433,8 +430,9 @@ public class JSONObject {
     }
 
     /**
-     * Produce a string from a double. The string "null" will be returned if the
-     * number is not finite.
+     * Produce a string from a double, as the shortest decimal that reads back
+     * as the same double. The string "null" will be returned if the number is
+     * not finite.
      *
      * @param d
      *            A double.
@@ -444,20 +442,7 @@ public class JSONObject {
         if (Double.isInfinite(d) || Double.isNaN(d)) {
             return "null";
         }
-
-// Shave off trailing zeros and decimal point, if possible.
-
-        String string = Double.toString(d);
-        if (string.indexOf('.') > 0 && string.indexOf('e') < 0
-                && string.indexOf('E') < 0) {
-            while (string.endsWith("0")) {
-                string = string.substring(0, string.length() - 1);
-            }
-            if (string.endsWith(".")) {
-                string = string.substring(0, string.length() - 1);
-            }
-        }
-        return string;
+        return DoubleFormatter.toString(d);
     }
 
     /**
@@ -762,7 +747,8 @@ public class JSONObject {
     }
 
     /**
-     * Produce a string from a Number.
+     * Produce a string from a Number. Doubles are written as the shortest
+     * decimal that reads back as the same double.
      *
      * @param number
      *            A Number
@@ -775,6 +761,9 @@ public class JSONObject {
             throw new JSONException("Null pointer");
         }
         testValidity(number);
+        if (number instanceof Double) {
+            return DoubleFormatter.toString(number.doubleValue());
+        }
 
 // Shave off trailing zeros and decimal point, if possible.
 
@@ -984,48 +973,17 @@ public class JSONObject {
     }
 
     private void populateMap(Object bean) {
-       @SuppressWarnings("rawtypes") // 20150120 robert.fromont@canterbury.ac.nz
-        Class klass = bean.getClass();
-
-// If klass is a System class then set includeSuperClass to false.
-
-        boolean includeSuperClass = klass.getClassLoader() != null;
-
-        Method[] methods = includeSuperClass ? klass.getMethods() : klass
-                .getDeclaredMethods();
-        for (int i = 0; i < methods.length; i += 1) {
+        BeanAccessors.Accessor[] accessors = BeanAccessors.forClass(bean
+                .getClass());
+        for (int i = 0; i < accessors.length; i += 1) {
             try {
-                Method method = methods[i];
-                if (Modifier.isPublic(method.getModifiers())) {
-                    String name = method.getName();
-                    String key = "";
-                    if (name.startsWith("get")) {
-                        if ("getClass".equals(name)
-                                || "getDeclaringClass".equals(name)) {
-                            key = "";
-                        } else {
-                            key = name.substring(3);
-                        }
-                    } else if (name.startsWith("is")) {
-                        key = name.substring(2);
-                    }
-                    if (key.length() > 0
-                            && Character.isUpperCase(key.charAt(0))
-                            && method.getParameterTypes().length == 0) {
-                        if (key.length() == 1) {
-                            key = key.toLowerCase();
-                        } else if (!Character.isUpperCase(key.charAt(1))) {
-                            key = key.substring(0, 1).toLowerCase()
-                                    + key.substring(1);
-                        }
-
-                        Object result = method.invoke(bean, (Object[]) null);
-                        if (result != null) {
-                            this.map.put(key, wrap(result));
-                        }
-                    }
+                Object result = accessors[i].getter.invokeExact(bean);
+                if (result != null) {
+                    this.map.put(accessors[i].key, wrap(result));
                 }
-            } catch (Exception ignore) {
+            } catch (Error error) {
+                throw error;
+            } catch (Throwable ignore) {
             }
         }
     }
@@ -1337,19 +1295,9 @@ public class JSONObject {
      * @return A simple JSON value.
      */
     public static Object stringToValue(String string) {
-        Double d;
-        if (string.equals("")) {
+        if (string.length() == 0) {
             return string;
         }
-        if (string.equalsIgnoreCase("true")) {
-            return Boolean.TRUE;
-        }
-        if (string.equalsIgnoreCase("false")) {
-            return Boolean.FALSE;
-        }
-        if (string.equalsIgnoreCase("null")) {
-            return JSONObject.NULL;
-        }
 
         /*
          * If it might be a number, try converting it. If a number cannot be
@@ -1358,25 +1306,238 @@ public class JSONObject {
 
         char b = string.charAt(0);
         if ((b >= '0' && b <= '9') || b == '-') {
-            try {
-                if (string.indexOf('.') > -1 || string.indexOf('e') > -1
-                        || string.indexOf('E') > -1) {
-                    d = Double.valueOf(string);
-                    if (!d.isInfinite() && !d.isNaN()) {
-                        return d;
+            return stringToNumber(string);
+        }
+        switch (b) {
+        case 't':
+        case 'T':
+            if (string.equalsIgnoreCase("true")) {
+                return Boolean.TRUE;
+            }
+            break;
+        case 'f':
+        case 'F':
+            if (string.equalsIgnoreCase("false")) {
+                return Boolean.FALSE;
+            }
+            break;
+        case 'n':
+        case 'N':
+            if (string.equalsIgnoreCase("null")) {
+                return JSONObject.NULL;
+            }
+            break;
+        }
+        return string;
+    }
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Convert a string that starts with a digit or '-' into a number. The
+     * text is classified and, in the usual cases, converted in one pass, so
+     * no exceptions are thrown and no other strings are made:
+     * <ul>
+     * <li>An integer is returned as an Integer or a Long if it is written the
+     * way Long.toString would write it, and is the string otherwise.</li>
+     * <li>A decimal with at most 15 significant digits and a small exponent is
+     * worked out exactly with a single multiplication or division; other
+     * decimals are left to Double.parseDouble, which can't fail once the text
+     * has been checked. Infinite values are returned as the string.</li>
+     * <li>Anything else that Double.valueOf might accept, like "1.5f", is
+     * converted the old way.</li>
+     * </ul>
+     *
+     * @param string
+     *            A String that starts with a digit or '-'.
+     * @return A Number, or the string.
+     */
+    private static Object stringToNumber(String string) {
+        int length = string.length();
+        boolean negative = string.charAt(0) == '-';
+        int i = negative ? 1 : 0;
+
+        // integer part
+        int intStart = i;
+        long mantissa = 0;
+        int significant = 0;
+        while (i < length) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            if (mantissa != 0 || c != '0') {
+                if (significant < 19) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                significant += 1;
+            }
+            i += 1;
+        }
+        int intDigits = i - intStart;
+
+        if (i == length) {
+            return integerToValue(string, negative, intStart, intDigits);
+        }
+        if (intDigits == 0 && string.charAt(i) != '.') {
+            // "-" followed by a word; at best Infinity or NaN
+            return string;
+        }
+
+        // fraction
+        int fractionDigits = 0;
+        int scale = 0;
+        if (string.charAt(i) == '.') {
+            i += 1;
+            while (i < length) {
+                char c = string.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (mantissa != 0 || c != '0') {
+                    if (significant < 19) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        scale -= 1;
                     }
+                    significant += 1;
                 } else {
-                    Long myLong = Long.valueOf(string);
-                    if (string.equals(myLong.toString())) {
-                        if (myLong == myLong.intValue()) {
-                            return myLong.intValue();
-                        } else {
-                            return myLong;
-                        }
+                    scale -= 1;
+                }
+                fractionDigits += 1;
+                i += 1;
+            }
+        }
+
+        // exponent
+        boolean valid = intDigits + fractionDigits > 0;
+        int exponent = 0;
+        if (valid && i < length) {
+            char c = string.charAt(i);
+            if (c == 'e' || c == 'E') {
+                i += 1;
+                boolean negativeExponent = false;
+                if (i < length) {
+                    c = string.charAt(i);
+                    if (c == '-' || c == '+') {
+                        negativeExponent = c == '-';
+                        i += 1;
                     }
                 }
-            } catch (Exception ignore) {
+                int exponentStart = i;
+                while (i < length) {
+                    c = string.charAt(i);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    if (exponent < 100000) {
+                        exponent = exponent * 10 + (c - '0');
+                    }
+                    i += 1;
+                }
+                valid = i > exponentStart;
+                if (negativeExponent) {
+                    exponent = -exponent;
+                }
+            }
+        }
+
+        if (!valid || i < length) {
+            if (string.indexOf('.') < 0 && string.indexOf('e') < 0
+                    && string.indexOf('E') < 0) {
+                // not something that Long.valueOf accepts
+                return string;
+            }
+            return decimalToValue(string);
+        }
+
+        if (significant <= 15) {
+            // zero is zero whatever the exponent
+            scale = significant > 0 ? scale + exponent : 0;
+            if (scale >= -22 && scale <= 22) {
+                double d = mantissa;
+                if (scale < 0) {
+                    d = d / POWERS_OF_TEN[-scale];
+                } else {
+                    d = d * POWERS_OF_TEN[scale];
+                }
+                return Double.valueOf(negative ? -d : d);
+            }
+        }
+        double d = Double.parseDouble(string);
+        if (Double.isInfinite(d)) {
+            return string;
+        }
+        return Double.valueOf(d);
+    }
+
+    /**
+     * Convert an optionally negative string of digits into an Integer or a
+     * Long. The string is only converted if it is written the way
+     * Long.toString would write the number: without leading zeros, not as
+     * "-0", and within the range of a long.
+     *
+     * @param string
+     *            The string.
+     * @param negative
+     *            Whether the string starts with '-'.
+     * @param start
+     *            The index of the first digit.
+     * @param digits
+     *            The number of digits.
+     * @return An Integer, a Long, or the string.
+     */
+    private static Object integerToValue(String string, boolean negative,
+            int start, int digits) {
+        if (digits == 0 || digits > 19
+                || (string.charAt(start) == '0' && (digits > 1 || negative))) {
+            return string;
+        }
+
+        // accumulate negatively, so that Long.MIN_VALUE can be reached
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (int i = start; i < start + digits; i += 1) {
+            int digit = string.charAt(i) - '0';
+            if (result < multiplicationLimit) {
+                return string;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return string;
+            }
+            result -= digit;
+        }
+        if (!negative) {
+            result = -result;
+        }
+        if (result == (int) result) {
+            return Integer.valueOf((int) result);
+        }
+        return Long.valueOf(result);
+    }
+
+    /**
+     * Convert a string that contains '.', 'e', or 'E' with Double.valueOf,
+     * for the forms that the single-pass conversion does not handle.
+     *
+     * @param string
+     *            The string.
+     * @return A Double, or the string if it is not a finite number.
+     */
+    private static Object decimalToValue(String string) {
+        try {
+            Double d = Double.valueOf(string);
+            if (!d.isInfinite() && !d.isNaN()) {
+                return d;
             }
+        } catch (Exception ignore) {
         }
         return string;
     }
@@ -1660,7 +1821,7 @@ public class JSONObject {
 
             if (length == 1) {
                 Object key = keys.next();
-                writer.write(quote(key.toString()));
+                quote(key.toString(), writer);
                 writer.write(':');
                 if (indentFactor > 0) {
                     writer.write(' ');
@@ -1677,7 +1838,7 @@ public class JSONObject {
                         writer.write('\n');
                     }
                     indent(writer, newindent);
-                    writer.write(quote(key.toString()));
+                    quote(key.toString(), writer);
                     writer.write(':');
                     if (indentFactor > 0) {
                         writer.write(' ');
@@ -0,0 +1,453 @@
+package org.json;
+
+import java.io.Reader;
+
+/*
+Copyright (c) 2024 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * JSONReader reads JSON text a token at a time, so that the parts of a large
+ * text that are wanted can be picked out without building the whole
+ * JSONObject or JSONArray. Each call to <code>nextToken</code> returns the
+ * next key, value, or start or end of an object or array, and the key or
+ * value can then be got with <code>getString</code> or <code>getValue</code>.
+ * <code>skipValue</code> skips over the next value, however big it is,
+ * <code>skipToEnd</code> skips the rest of the current object or array, and
+ * <code>readValue</code> reads the next value whole. For example, <pre>
+ * JSONReader reader = new JSONReader(myReader);
+ * reader.nextToken(); // START_OBJECT
+ * while (reader.nextToken() == JSONReader.Token.KEY) {
+ *     if ("code".equals(reader.getString())) {
+ *         code = reader.readValue();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }</pre>
+ * <p>
+ * Only the keys and scalar values being looked at are held in memory, so a
+ * text of any size can be read with a small, fixed amount of memory, as long
+ * as the values that are read whole are small.
+ * <p>
+ * The text is read with a JSONTokener, and is accepted or rejected as it would
+ * be by JSONObject and JSONArray.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+public class JSONReader {
+
+    /**
+     * The kinds of token that a JSON text is made of.
+     */
+    public enum Token {
+        /** The start of an object: '{' */
+        START_OBJECT,
+        /** The end of an object: '}' */
+        END_OBJECT,
+        /** The start of an array: '[' */
+        START_ARRAY,
+        /** The end of an array: ']' */
+        END_ARRAY,
+        /** The key of a member of an object */
+        KEY,
+        /** A string value */
+        STRING,
+        /** A number value */
+        NUMBER,
+        /** A true or false value */
+        BOOLEAN,
+        /** A null value */
+        NULL,
+        /** The end of the text */
+        END
+    }
+
+    /**
+     * The comma flag determines if a comma is expected before the next key or
+     * value.
+     */
+    private boolean comma;
+
+    /**
+     * The number of objects and arrays that the current token is within.
+     */
+    private int depth;
+
+    /**
+     * Whether a key has just been read, so a value must follow.
+     */
+    private boolean key;
+
+    /**
+     * Whether a value is being skipped, so the text of keys and values need
+     * not be kept.
+     */
+    private boolean skipping;
+
+    /**
+     * The object/array stack: 'o' for an object, 'a' for an array.
+     */
+    private char[] stack = new char[32];
+
+    /**
+     * The text of the current key or value.
+     */
+    private String string;
+
+    /**
+     * The current token.
+     */
+    private Token token;
+
+    /**
+     * The current value.
+     */
+    private Object value;
+
+    /**
+     * The source of the text.
+     */
+    private final JSONTokener x;
+
+    /**
+     * Construct a JSONReader that reads text from a JSONTokener.
+     * @param x A JSONTokener.
+     */
+    public JSONReader(JSONTokener x) {
+        this.x = x;
+    }
+
+    /**
+     * Construct a JSONReader that reads text from a Reader.
+     * @param reader A reader.
+     */
+    public JSONReader(Reader reader) {
+        this(new JSONTokener(reader));
+    }
+
+    /**
+     * Construct a JSONReader that reads text from a string.
+     * @param s A source string.
+     */
+    public JSONReader(String s) {
+        this(new JSONBufferTokener(s));
+    }
+
+    /**
+     * Get the number of objects and arrays that the current token is within.
+     * A START_OBJECT or START_ARRAY token is within the object or array it
+     * starts.
+     * @return The depth, which is 0 at the top level.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Get the text of the current key or value. Numbers are given as they
+     * were written in the text.
+     * @return The key, the text of a string, number, boolean or null, or null
+     *  if the current token is not a key or value.
+     */
+    public String getString() {
+        return this.string;
+    }
+
+    /**
+     * Get the current token.
+     * @return The token most recently returned by nextToken, or null if
+     *  nextToken has not been called.
+     */
+    public Token getToken() {
+        return this.token;
+    }
+
+    /**
+     * Get the current value. This is a Boolean, Double, Integer, Long, String,
+     * or the JSONObject.NULL object, or the JSONObject or JSONArray most
+     * recently read by readValue.
+     * @return The value, or the key if the current token is a key, or null if
+     *  the current token is the start or end of an object or array.
+     */
+    public Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * Get the next token.
+     * @return The next token, which is END once the top level value has been
+     *  read.
+     * @throws JSONException If there is a syntax error.
+     */
+    public Token nextToken() throws JSONException {
+        this.string = null;
+        this.value = null;
+        char c = this.x.nextClean();
+        if (this.depth == 0) {
+            if (this.comma || c == 0) {
+                return this.token = Token.END;
+            }
+        } else if (!this.key) {
+            char mode = this.stack[this.depth - 1];
+            char close = mode == 'o' ? '}' : ']';
+            if (c == close) {
+                return end(mode);
+            }
+            if (this.comma) {
+                if (c != ',' && (mode == 'a' || c != ';')) {
+                    throw this.x.syntaxError("Expected a ',' or '" + close
+                            + "'");
+                }
+                c = this.x.nextClean();
+                if (c == close) {
+                    return end(mode);
+                }
+            }
+            if (mode == 'a' && c == ',') {
+
+// An empty array element is null, as it is in JSONArray.
+
+                this.x.back();
+                this.comma = true;
+                this.value = JSONObject.NULL;
+                return this.token = Token.NULL;
+            }
+            if (mode == 'o') {
+                if (c == 0) {
+                    throw this.x.syntaxError(
+                            "A JSONObject text must end with '}'");
+                }
+                if (this.skipping && c != '{' && c != '[') {
+                    skipText(c);
+                } else {
+                    this.x.back();
+                    this.string = this.x.nextKey();
+                    this.value = this.string;
+                }
+                c = this.x.nextClean();
+                if (c != ':') {
+                    throw this.x.syntaxError("Expected a ':' after a key");
+                }
+                this.key = true;
+                return this.token = Token.KEY;
+            }
+        }
+        this.key = false;
+        switch (c) {
+        case 0:
+            throw this.x.syntaxError("Missing value");
+        case '{':
+            push('o');
+            return this.token = Token.START_OBJECT;
+        case '[':
+            push('a');
+            return this.token = Token.START_ARRAY;
+        case '"':
+        case '\'':
+            this.comma = true;
+            if (this.skipping) {
+                skipText(c);
+            } else {
+                this.string = this.x.nextString(c);
+                this.value = this.string;
+            }
+            return this.token = Token.STRING;
+        }
+        if (this.skipping) {
+            this.comma = true;
+            skipText(c);
+            return this.token = Token.STRING;
+        }
+
+/*
+ * Handle unquoted text, as JSONTokener.nextValue does.
+ */
+
+        StringBuilder sb = new StringBuilder();
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            sb.append(c);
+            c = this.x.next();
+        }
+        this.x.back();
+        this.string = sb.toString().trim();
+        if ("".equals(this.string)) {
+            throw this.x.syntaxError("Missing value");
+        }
+        this.value = JSONObject.stringToValue(this.string);
+        this.comma = true;
+        if (this.value instanceof Boolean) {
+            return this.token = Token.BOOLEAN;
+        }
+        if (this.value instanceof Number) {
+            return this.token = Token.NUMBER;
+        }
+        if (this.value == JSONObject.NULL) {
+            return this.token = Token.NULL;
+        }
+        return this.token = Token.STRING;
+    }
+
+    /**
+     * Read the next value whole. If it is an object or array, the JSONObject
+     * or JSONArray is built, and the reader moves on past its end.
+     * @return A Boolean, Double, Integer, JSONArray, JSONObject, Long, or
+     *  String, or the JSONObject.NULL object.
+     * @throws JSONException If there is a syntax error, or the next token is
+     *  not a value.
+     */
+    public Object readValue() throws JSONException {
+        Token next = nextValueToken();
+        if (next == Token.START_OBJECT || next == Token.START_ARRAY) {
+            this.depth -= 1;
+            this.x.back();
+            this.value = next == Token.START_OBJECT
+                    ? new JSONObject(this.x)
+                    : new JSONArray(this.x);
+            this.comma = true;
+        }
+        return this.value;
+    }
+
+    /**
+     * Skip the next value. If it is an object or array, everything in it is
+     * skipped, and the reader moves on past its end.
+     * @throws JSONException If there is a syntax error, or the next token is
+     *  not a value.
+     */
+    public void skipValue() throws JSONException {
+        Token next = nextValueToken();
+        if (next == Token.START_OBJECT || next == Token.START_ARRAY) {
+            skipTo(this.depth - 1);
+        }
+    }
+
+    /**
+     * Skip the rest of the object or array that the reader is within,
+     * however big it is, and move on past its end. Nothing is skipped at the
+     * top level.
+     * @throws JSONException If there is a syntax error.
+     */
+    public void skipToEnd() throws JSONException {
+        if (this.depth > 0) {
+            skipTo(this.depth - 1);
+        }
+    }
+
+    /**
+     * Skip tokens without keeping their text, until the reader is back at
+     * the given depth.
+     * @param level The depth to skip to.
+     * @throws JSONException If there is a syntax error.
+     */
+    private void skipTo(int level) throws JSONException {
+        this.skipping = true;
+        try {
+            while (this.depth > level) {
+                nextToken();
+            }
+        } finally {
+            this.skipping = false;
+        }
+    }
+
+    /**
+     * Skip the rest of a key or scalar value without keeping its text.
+     * @param c The first character of the key or value. If it is a quote, the
+     *  rest of the quoted string is skipped, otherwise the rest of the
+     *  unquoted text.
+     * @throws JSONException If a quoted string is unterminated.
+     */
+    private void skipText(char c) throws JSONException {
+        if (c == '"' || c == '\'') {
+            char quote = c;
+            while (true) {
+                c = this.x.next();
+                switch (c) {
+                case 0:
+                case '\n':
+                case '\r':
+                    throw this.x.syntaxError("Unterminated string");
+                case '\\':
+                    this.x.next();
+                    break;
+                default:
+                    if (c == quote) {
+                        return;
+                    }
+                }
+            }
+        }
+        boolean empty = true;
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            if (c != ' ') {
+                empty = false;
+            }
+            c = this.x.next();
+        }
+        this.x.back();
+        if (empty) {
+            throw this.x.syntaxError("Missing value");
+        }
+    }
+
+    /**
+     * Get the next token, which must be the start of a value.
+     * @return The token.
+     * @throws JSONException If there is a syntax error, or the next token is
+     *  not a value.
+     */
+    private Token nextValueToken() throws JSONException {
+        Token next = nextToken();
+        if (next == Token.KEY || next == Token.END_OBJECT
+                || next == Token.END_ARRAY || next == Token.END) {
+            throw this.x.syntaxError("Expected a value, not " + next);
+        }
+        return next;
+    }
+
+    /**
+     * End the current object or array.
+     * @param mode 'o' for an object, 'a' for an array.
+     * @return END_OBJECT or END_ARRAY.
+     */
+    private Token end(char mode) {
+        this.depth -= 1;
+        this.comma = true;
+        return this.token = mode == 'o' ? Token.END_OBJECT : Token.END_ARRAY;
+    }
+
+    /**
+     * Start an object or array.
+     * @param mode 'o' for an object, 'a' for an array.
+     */
+    private void push(char mode) {
+        if (this.depth == this.stack.length) {
+            char[] bigger = new char[this.depth * 2];
+            System.arraycopy(this.stack, 0, bigger, 0, this.depth);
+            this.stack = bigger;
+        }
+        this.stack[this.depth] = mode;
+        this.depth += 1;
+        this.comma = false;
+    }
+}
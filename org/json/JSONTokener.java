@@ -1,6 +1,5 @@
 package org.json;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -49,6 +48,23 @@ public class JSONTokener {
     private boolean usePrevious;
 
 
+    /**
+     * Construct a JSONTokener with no Reader. Subclasses that use this
+     * constructor must override every method that reads from the source,
+     * i.e. {@link #next()}, {@link #back()}, {@link #end()},
+     * {@link #skipTo(char)} and {@link #toString()}.
+     */
+    protected JSONTokener() {
+        this.reader = null;
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+        this.index = 0;
+        this.character = 1;
+        this.line = 1;
+    }
+
+
     /**
      * Construct a JSONTokener from a Reader.
      *
@@ -57,7 +73,7 @@ public class JSONTokener {
     public JSONTokener(Reader reader) {
         this.reader = reader.markSupported()
             ? reader
-            : new BufferedReader(reader);
+            : new UnsyncBufferedReader(reader);
         this.eof = false;
         this.usePrevious = false;
         this.previous = 0;
@@ -391,6 +407,18 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Get the next key of a JSONObject. This is the next value as a string,
+     * shared with other JSONObjects that have the same key.
+     * @throws JSONException If syntax error.
+     *
+     * @return A key.
+     */
+    public String nextKey() throws JSONException {
+        return KeyDictionary.intern(this.nextValue().toString());
+    }
+
+
     /**
      * Skip characters until the next character is the requested character.
      * If the requested character is not found, no characters are skipped.
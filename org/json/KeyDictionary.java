@@ -0,0 +1,109 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A bounded dictionary of the keys parsed into JSONObjects, so that objects
+ * with the same keys share the same key Strings. It is a fixed-size table in
+ * which each key has one slot, chosen by its hash; a new key simply replaces
+ * whatever was in its slot, so memory use is bounded however many different
+ * keys are seen. Long keys are not kept.
+ * <p>
+ * Lookups don't lock. Threads may race to fill a slot, but as Strings are
+ * immutable the worst that can happen is a missed chance to share a key.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+final class KeyDictionary {
+
+    /**
+     * The number of slots, which must be a power of two.
+     */
+    private static final int SLOTS = 1024;
+
+    /**
+     * Keys longer than this are not kept.
+     */
+    static final int MAX_KEY_LENGTH = 32;
+
+    private static final String[] table = new String[SLOTS];
+
+    private KeyDictionary() {
+    }
+
+    private static int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & (SLOTS - 1);
+    }
+
+    /**
+     * Get the shared copy of a key.
+     * @param key A key.
+     * @return An equal String, which may be the given one.
+     */
+    static String intern(String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            return key;
+        }
+        int slot = slot(key.hashCode());
+        String shared = table[slot];
+        if (key.equals(shared)) {
+            return shared;
+        }
+        table[slot] = key;
+        return key;
+    }
+
+    /**
+     * Get the shared copy of a key, without making a new String if it is
+     * already in the dictionary.
+     * @param chars Characters including the key.
+     * @param offset The index of the first character of the key.
+     * @param length The number of characters in the key.
+     * @return A String with the given characters.
+     */
+    static String intern(char[] chars, int offset, int length) {
+        if (length > MAX_KEY_LENGTH) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i += 1) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        int slot = slot(hash);
+        String shared = table[slot];
+        if (shared != null && shared.length() == length) {
+            int i = 0;
+            while (i < length && shared.charAt(i) == chars[offset + i]) {
+                i += 1;
+            }
+            if (i == length) {
+                return shared;
+            }
+        }
+        String key = new String(chars, offset, length);
+        table[slot] = key;
+        return key;
+    }
+}
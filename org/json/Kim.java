@@ -64,12 +64,19 @@ package org.json;
 public class Kim {
 
     /**
-     * The byte array containing the kim's content.
+     * The byte array containing the kim's content. A kim made from part of
+     * another kim shares its byte array.
      */
     private byte[] bytes = null;
 
     /**
-     * The kim's hashcode, conforming to Java's hashcode conventions.
+     * The position of the kim's first byte in the byte array.
+     */
+    private int offset = 0;
+
+    /**
+     * The kim's hashcode, conforming to Java's hashcode conventions, or 0 if it
+     * has not been computed yet.
      */
     private int hashcode = 0;
 
@@ -95,23 +102,10 @@ public class Kim {
      *            The index of the last byte plus one.
      */
     public Kim(byte[] bytes, int from, int thru) {
-
-// As the bytes are copied into the new kim, a hashcode is computed using a
-// modified Fletcher code.
-
-        int sum = 1;
-        int value;
-        this.hashcode = 0;
         this.length = thru - from;
         if (this.length > 0) {
             this.bytes = new byte[this.length];
-            for (int at = 0; at < this.length; at += 1) {
-                value = (int) bytes[at + from] & 0xFF;
-                sum += value;
-                this.hashcode += sum;
-                this.bytes[at] = (byte) value;
-            }
-            this.hashcode += sum << 16;
+            System.arraycopy(bytes, from, this.bytes, 0, this.length);
         }
     }
 
@@ -129,7 +123,8 @@ public class Kim {
 
     /**
      * Make a new kim from a substring of an existing kim. The coordinates are
-     * in byte units, not character units.
+     * in byte units, not character units. The bytes are not copied; the new
+     * kim shares them with the existing kim.
      *
      * @param kim
      *            The source of bytes.
@@ -137,9 +132,16 @@ public class Kim {
      *            The point at which to take bytes.
      * @param thru
      *            The point at which to stop taking bytes.
+     * @throws JSONException
+     *             if the substring is not within the kim.
      */
     public Kim(Kim kim, int from, int thru) {
-        this(kim.bytes, from, thru);
+        if (from < 0 || from > thru || thru > kim.length) {
+            throw new JSONException("Bad substring " + from + " thru " + thru);
+        }
+        this.bytes = kim.bytes;
+        this.offset = kim.offset + from;
+        this.length = thru - from;
     }
 
     /**
@@ -227,6 +229,7 @@ public class Kim {
             }
             this.hashcode += sum << 16;
         }
+        this.string = string;
     }
 
     /**
@@ -290,7 +293,7 @@ public class Kim {
      * @return The position immediately after the copy.
      */
     public int copy(byte[] bytes, int at) {
-        System.arraycopy(this.bytes, 0, bytes, at, this.length);
+        System.arraycopy(this.bytes, this.offset, bytes, at, this.length);
         return at + this.length;
     }
 
@@ -311,10 +314,16 @@ public class Kim {
         if (this == that) {
             return true;
         }
-        if (this.hashcode != that.hashcode) {
+        if (this.length != that.length
+                || this.hashCode() != that.hashCode()) {
             return false;
         }
-        return java.util.Arrays.equals(this.bytes, that.bytes);
+        for (int at = 0; at < this.length; at += 1) {
+            if (this.bytes[this.offset + at] != that.bytes[that.offset + at]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -326,17 +335,28 @@ public class Kim {
      *             if there is no byte at that position.
      */
     public int get(int at) throws JSONException {
-        if (at < 0 || at > this.length) {
+        if (at < 0 || at >= this.length) {
             throw new JSONException("Bad character at " + at);
         }
-        return ((int) this.bytes[at]) & 0xFF;
+        return ((int) this.bytes[this.offset + at]) & 0xFF;
     }
 
     /**
-     * Returns a hash code value for the kim.
+     * Returns a hash code value for the kim. It is computed the first time it
+     * is needed, using a modified Fletcher code.
      */
     public int hashCode() {
-        return this.hashcode;
+        int hash = this.hashcode;
+        if (hash == 0 && this.length > 0) {
+            int sum = 1;
+            for (int at = 0; at < this.length; at += 1) {
+                sum += (int) this.bytes[this.offset + at] & 0xFF;
+                hash += sum;
+            }
+            hash += sum << 16;
+            this.hashcode = hash;
+        }
+        return hash;
     }
 
     /**
@@ -0,0 +1,333 @@
+package org.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * The values of a JSONArray that holds only numbers, kept in primitive arrays
+ * rather than as boxed Numbers. Values are kept in a long[] while they are
+ * all integers, and in a double[] once a Double is added, with a bit for each
+ * value that is an integer.
+ * <p>
+ * Values read back as the types they were added as, as long as an integer is
+ * an Integer if it fits in an int and a Long if it doesn't, which is how
+ * JSONObject.stringToValue converts them. Values that can't be kept that way,
+ * like a Long that would fit in an int, a BigDecimal, or an integer that a
+ * double can't hold exactly once there are doubles, are refused, and the
+ * JSONArray goes back to keeping its values in a list.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+final class NumberList {
+
+    /**
+     * The largest magnitude up to which a double can hold every integer
+     * exactly.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    /**
+     * The values, while they are all integers.
+     */
+    private long[] longs;
+
+    /**
+     * The values, once there is a Double among them.
+     */
+    private double[] doubles;
+
+    /**
+     * Along with doubles, a bit for each value that is an integer.
+     */
+    private long[] integers;
+
+    private int size;
+
+    NumberList() {
+        this.longs = new long[10];
+    }
+
+    /**
+     * Get the number of values.
+     * @return The number of values.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Add a value to the end.
+     * @param value A value.
+     * @return true if the value was added, false if it can't be kept here.
+     */
+    boolean add(Object value) {
+        if (value instanceof Integer) {
+            return this.addInteger(((Integer) value).intValue());
+        }
+        if (value instanceof Long) {
+            long l = ((Long) value).longValue();
+            return l != (int) l && this.addInteger(l);
+        }
+        if (value instanceof Double) {
+            return this.addDouble(((Double) value).doubleValue());
+        }
+        return false;
+    }
+
+    /**
+     * Add an integer to the end, which will be read back as an Integer if it
+     * fits in an int, or a Long if it doesn't.
+     * @param l An integer.
+     * @return true if the value was added, false if it can't be kept here.
+     */
+    boolean addInteger(long l) {
+        if (this.doubles == null) {
+            if (this.size == this.longs.length) {
+                this.longs = Arrays.copyOf(this.longs, grow(this.size));
+            }
+            this.longs[this.size++] = l;
+            return true;
+        }
+        if (l < -MAX_EXACT || l > MAX_EXACT) {
+            return false;
+        }
+        this.addDoubleValue(l);
+        this.integers[(this.size - 1) >>> 6] |= 1L << (this.size - 1);
+        return true;
+    }
+
+    /**
+     * Add a Double to the end.
+     * @param d A double.
+     * @return true if the value was added, false if it can't be kept here.
+     */
+    boolean addDouble(double d) {
+        if (this.doubles == null && !this.toDoubles()) {
+            return false;
+        }
+        this.addDoubleValue(d);
+        return true;
+    }
+
+    private void addDoubleValue(double d) {
+        if (this.size == this.doubles.length) {
+            int capacity = grow(this.size);
+            this.doubles = Arrays.copyOf(this.doubles, capacity);
+            this.integers = Arrays.copyOf(this.integers,
+                    (capacity + 63) >>> 6);
+        }
+        this.doubles[this.size++] = d;
+    }
+
+    /**
+     * Replace a value.
+     * @param index An index less than size().
+     * @param value A value.
+     * @return true if the value was replaced, false if it can't be kept here.
+     */
+    boolean set(int index, Object value) {
+        long l;
+        if (value instanceof Integer) {
+            l = ((Integer) value).intValue();
+        } else if (value instanceof Long) {
+            l = ((Long) value).longValue();
+            if (l == (int) l) {
+                return false;
+            }
+        } else if (value instanceof Double) {
+            if (this.doubles == null && !this.toDoubles()) {
+                return false;
+            }
+            this.doubles[index] = ((Double) value).doubleValue();
+            this.integers[index >>> 6] &= ~(1L << index);
+            return true;
+        } else {
+            return false;
+        }
+        if (this.doubles == null) {
+            this.longs[index] = l;
+            return true;
+        }
+        if (l < -MAX_EXACT || l > MAX_EXACT) {
+            return false;
+        }
+        this.doubles[index] = l;
+        this.integers[index >>> 6] |= 1L << index;
+        return true;
+    }
+
+    /**
+     * Remove a value and close the hole.
+     * @param index An index less than size().
+     */
+    void remove(int index) {
+        int moved = this.size - index - 1;
+        if (this.doubles == null) {
+            System.arraycopy(this.longs, index + 1, this.longs, index, moved);
+        } else {
+            System.arraycopy(this.doubles, index + 1, this.doubles, index,
+                    moved);
+            for (int i = index; i < this.size - 1; i += 1) {
+                if (this.isInteger(i + 1)) {
+                    this.integers[i >>> 6] |= 1L << i;
+                } else {
+                    this.integers[i >>> 6] &= ~(1L << i);
+                }
+            }
+            this.integers[(this.size - 1) >>> 6] &= ~(1L << (this.size - 1));
+        }
+        this.size -= 1;
+    }
+
+    /**
+     * Get a value, as an Integer, Long, or Double.
+     * @param index An index less than size().
+     * @return The value.
+     */
+    Object get(int index) {
+        if (this.isInteger(index)) {
+            long l = this.getLong(index);
+            if (l == (int) l) {
+                return Integer.valueOf((int) l);
+            }
+            return Long.valueOf(l);
+        }
+        return Double.valueOf(this.doubles[index]);
+    }
+
+    /**
+     * Determine whether a value is an integer, rather than a Double.
+     * @param index An index less than size().
+     * @return true if the value is an Integer or Long.
+     */
+    boolean isInteger(int index) {
+        return this.doubles == null
+                || (this.integers[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get a value as a double.
+     * @param index An index less than size().
+     * @return The value.
+     */
+    double getDouble(int index) {
+        return this.doubles == null ? this.longs[index] : this.doubles[index];
+    }
+
+    /**
+     * Get a value as an int, as its Number's intValue() would.
+     * @param index An index less than size().
+     * @return The value.
+     */
+    int getInt(int index) {
+        if (this.doubles == null) {
+            return (int) this.longs[index];
+        }
+        if (this.isInteger(index)) {
+            return (int) (long) this.doubles[index];
+        }
+        return (int) this.doubles[index];
+    }
+
+    /**
+     * Get a value as a long.
+     * @param index An index less than size().
+     * @return The value.
+     */
+    long getLong(int index) {
+        return this.doubles == null ? this.longs[index]
+                : (long) this.doubles[index];
+    }
+
+    /**
+     * Get all the values as doubles.
+     * @return A new array of the values.
+     */
+    double[] toDoubleArray() {
+        if (this.doubles != null) {
+            return Arrays.copyOf(this.doubles, this.size);
+        }
+        double[] values = new double[this.size];
+        for (int i = 0; i < this.size; i += 1) {
+            values[i] = this.longs[i];
+        }
+        return values;
+    }
+
+    /**
+     * Get all the values as longs.
+     * @return A new array of the values.
+     */
+    long[] toLongArray() {
+        if (this.doubles == null) {
+            return Arrays.copyOf(this.longs, this.size);
+        }
+        long[] values = new long[this.size];
+        for (int i = 0; i < this.size; i += 1) {
+            values[i] = (long) this.doubles[i];
+        }
+        return values;
+    }
+
+    /**
+     * Box all the values into a list, for when a value that can't be kept
+     * here is added.
+     * @return A new list of the values.
+     */
+    ArrayList<Object> toList() {
+        ArrayList<Object> list = new ArrayList<Object>(grow(this.size));
+        for (int i = 0; i < this.size; i += 1) {
+            list.add(this.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Move the values from longs to doubles.
+     * @return false if there is an integer that a double can't hold exactly.
+     */
+    private boolean toDoubles() {
+        for (int i = 0; i < this.size; i += 1) {
+            if (this.longs[i] < -MAX_EXACT || this.longs[i] > MAX_EXACT) {
+                return false;
+            }
+        }
+        int capacity = this.longs.length;
+        this.doubles = new double[capacity];
+        this.integers = new long[(capacity + 63) >>> 6];
+        for (int i = 0; i < this.size; i += 1) {
+            this.doubles[i] = this.longs[i];
+            this.integers[i >>> 6] |= 1L << i;
+        }
+        this.longs = null;
+        return true;
+    }
+
+    private static int grow(int size) {
+        return size + (size >> 1) + 1;
+    }
+}
@@ -0,0 +1,134 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/*
+Copyright (c) 2024 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+/**
+ * A buffered Reader with no locking, for a JSONTokener that reads a character
+ * at a time. BufferedReader and StringReader take a lock for every character
+ * read, which costs more than the rest of JSONTokener.next(). Like
+ * BufferedReader, it reads ahead of the characters it has delivered, and it
+ * supports mark and reset. It is not safe for use by more than one thread.
+ * @author JSON.org
+ * @version 2024-06-14
+ */
+final class UnsyncBufferedReader extends Reader {
+    private char[] buffer = new char[8192];
+    private final Reader in;
+    private int limit;
+    private int mark = -1;
+    private int markLimit;
+    private int position;
+
+    /**
+     * Construct an UnsyncBufferedReader.
+     * @param in The reader to read from.
+     */
+    UnsyncBufferedReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Read more characters into the buffer, keeping any that have been
+     * marked.
+     * @return true if there are more characters, false at the end.
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        if (this.mark >= 0 && this.position - this.mark >= this.markLimit) {
+            this.mark = -1; // read past the limit
+        }
+        if (this.mark < 0) {
+            this.position = 0;
+            this.limit = 0;
+        } else {
+            int kept = this.limit - this.mark;
+            if (this.mark > 0) {
+                System.arraycopy(this.buffer, this.mark, this.buffer, 0, kept);
+            } else if (kept == this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, kept * 2);
+            }
+            this.position -= this.mark;
+            this.limit = kept;
+            this.mark = 0;
+        }
+        int count = this.in.read(this.buffer, this.limit,
+                this.buffer.length - this.limit);
+        if (count <= 0) {
+            return false;
+        }
+        this.limit += count;
+        return true;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        this.mark = this.position;
+        this.markLimit = readAheadLimit;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.position >= this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (this.position >= this.limit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(length, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, chars, offset, count);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (this.mark < 0) {
+            throw new IOException("Mark invalid");
+        }
+        this.position = this.mark;
+    }
+}
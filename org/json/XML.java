@@ -1,5 +1,10 @@
 package org.json;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
 /*
 Copyright (c) 2002 JSON.org
 
@@ -118,16 +123,38 @@ public class XML {
         }
     }
 
+    /**
+     * Attach a closed element to the context, unless the handler leaves it
+     * out.
+     * @param context The JSONObject that will include the element.
+     * @param tagName The element's tag name.
+     * @param value   The element's value.
+     * @param handler The handler to pass the element to, or null.
+     * @param depth   The depth of the element.
+     * @throws JSONException
+     */
+    private static void accumulate(JSONObject context, String tagName,
+                                   Object value, XMLHandler handler,
+                                   int depth) throws JSONException {
+        if (handler == null || handler.element(depth, tagName, value)) {
+            context.accumulate(tagName, value);
+        }
+    }
+
+
     /**
      * Scan the content following the named tag, attaching it to the context.
      * @param x       The XMLTokener containing the source string.
      * @param context The JSONObject that will include the new material.
      * @param name    The tag name.
+     * @param handler The handler to pass closed elements to, or null.
+     * @param depth   The depth of the element that may be opened.
      * @return true if the close tag is processed.
      * @throws JSONException
      */
     private static boolean parse(XMLTokener x, JSONObject context,
-                                 String name) throws JSONException {
+                                 String name, XMLHandler handler, int depth)
+            throws JSONException {
         char       c;
         int        i;
         JSONObject jsonobject = null;
@@ -242,9 +269,10 @@ public class XML {
                         throw x.syntaxError("Misshaped tag");
                     }
                     if (jsonobject.length() > 0) {
-                        context.accumulate(tagName, jsonobject);
+                        accumulate(context, tagName, jsonobject, handler,
+                                depth);
                     } else {
-                        context.accumulate(tagName, "");
+                        accumulate(context, tagName, "", handler, depth);
                     }
                     return false;
 
@@ -268,15 +296,19 @@ public class XML {
 // Nested element
 
                         } else if (token == LT) {
-                            if (parse(x, jsonobject, tagName)) {
+                            if (parse(x, jsonobject, tagName, handler,
+                                    depth + 1)) {
                                 if (jsonobject.length() == 0) {
-                                    context.accumulate(tagName, "");
+                                    accumulate(context, tagName, "",
+                                            handler, depth);
                                 } else if (jsonobject.length() == 1 &&
                                        jsonobject.opt("content") != null) {
-                                    context.accumulate(tagName,
-                                            jsonobject.opt("content"));
+                                    accumulate(context, tagName,
+                                            jsonobject.opt("content"),
+                                            handler, depth);
                                 } else {
-                                    context.accumulate(tagName, jsonobject);
+                                    accumulate(context, tagName,
+                                            jsonobject, handler, depth);
                                 }
                                 return false;
                             }
@@ -349,10 +381,69 @@ public class XML {
      * @throws JSONException
      */
     public static JSONObject toJSONObject(String string) throws JSONException {
+        return toJSONObject(new XMLTokener(string), null);
+    }
+
+
+    /**
+     * Convert a well-formed (but not necessarily valid) XML document into a
+     * JSONObject, as toJSONObject(String) does, reading it as it goes rather
+     * than needing it all in a string first.
+     * @param reader The source of the document.
+     * @return A JSONObject containing the structured data from the XML.
+     * @throws JSONException
+     */
+    public static JSONObject toJSONObject(Reader reader) throws JSONException {
+        return toJSONObject(new XMLTokener(reader), null);
+    }
+
+
+    /**
+     * Convert a well-formed (but not necessarily valid) XML document in UTF-8
+     * into a JSONObject, as toJSONObject(String) does, reading it as it goes
+     * rather than needing it all in a string first.
+     * @param inputStream The source of the document.
+     * @return A JSONObject containing the structured data from the XML.
+     * @throws JSONException
+     */
+    public static JSONObject toJSONObject(InputStream inputStream)
+            throws JSONException {
+        return toJSONObject(new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Read a well-formed (but not necessarily valid) XML document, passing
+     * each element to a handler as it is closed. Elements that the handler
+     * keeps are converted as toJSONObject(String) would convert them, and
+     * elements that it leaves out are dropped, so the whole document need
+     * never be in memory at once. For example, a handler that processes each
+     * child of the root element and returns false for depth 2 leaves only the
+     * root element's attributes in the result.
+     * @param reader  The source of the document.
+     * @param handler The handler to pass each closed element to.
+     * @return A JSONObject containing the elements that were kept.
+     * @throws JSONException
+     */
+    public static JSONObject toJSONObject(Reader reader, XMLHandler handler)
+            throws JSONException {
+        return toJSONObject(new XMLTokener(reader), handler);
+    }
+
+
+    /**
+     * Convert the XML read by an XMLTokener into a JSONObject.
+     * @param x       The XMLTokener.
+     * @param handler The handler to pass closed elements to, or null.
+     * @return A JSONObject containing the structured data from the XML.
+     * @throws JSONException
+     */
+    private static JSONObject toJSONObject(XMLTokener x, XMLHandler handler)
+            throws JSONException {
         JSONObject jo = new JSONObject();
-        XMLTokener x = new XMLTokener(string);
         while (x.more() && x.skipPast("<")) {
-            parse(x, jo, null);
+            parse(x, jo, null, handler, 1);
         }
         return jo;
     }
@@ -0,0 +1,28 @@
+package org.json;
+/**
+ * The <code>XMLHandler</code> interface lets a class receive the elements of
+ * an XML document as they are closed, when the document is converted with
+ * <code>XML.toJSONObject(</code>Reader, XMLHandler<code>)</code>. Each element
+ * is passed as the value it would have in the JSONObject, and the handler
+ * decides whether it is kept there. An element that is not kept can be
+ * garbage collected as soon as the handler is done with it, so a large
+ * document can be processed an element at a time.
+ */
+public interface XMLHandler {
+    /**
+     * The <code>element</code> method is called when an element is closed,
+     * after all of the elements inside it.
+     *
+     * @param depth The depth of the element: 1 for the root element, 2 for
+     *  its children, and so on.
+     * @param tagName The element's tag name.
+     * @param value The element's value: a JSONObject of its attributes,
+     *  content and kept child elements, or its content alone, or "" if it is
+     *  empty.
+     * @return true if the element should be accumulated in its parent, or
+     *  false if it should be left out.
+     * @throws JSONException If the element can't be handled.
+     */
+    public boolean element(int depth, String tagName, Object value)
+            throws JSONException;
+}
@@ -0,0 +1,198 @@
+package org.json.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ Copyright (c) 2013 JSON.org
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ The Software shall be used for Good, not Evil.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+/**
+ * This is a big endian bit reader that reads its bits straight from a
+ * ByteBuffer, from its position up to its limit. Bits are taken from the
+ * buffer a word at a time into a 64 bit accumulator, so the buffer's
+ * position may be up to 8 bytes ahead of the bits that have been read.
+ *
+ * @version 2024-06-14
+ *
+ */
+public class BitBufferReader implements BitReader {
+    /**
+     * The number of bits taken from the buffer but not yet read.
+     */
+    private int available = 0;
+
+    /**
+     * Bits taken from the buffer but not yet read, in the low this.available
+     * bits.
+     */
+    private long unread = 0;
+
+    /**
+     * The source of the bits.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Whether words taken from the buffer have to be byte swapped, because it
+     * is little endian.
+     */
+    private final boolean swap;
+
+    /**
+     * The number of bits read so far. This is used in padding.
+     */
+    private long nrBits = 0;
+
+    /**
+     * Make a BitReader from a ByteBuffer. The BitReader will read from the
+     * buffer's position, and advance it as bytes are taken.
+     *
+     * @param buffer
+     *            A ByteBuffer.
+     */
+    public BitBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.swap = buffer.order() != ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Read one bit.
+     *
+     * @return true if it is a 1 bit.
+     */
+    public boolean bit() throws IOException {
+        return read(1) != 0;
+    }
+
+    /**
+     * Get the number of bits that have been read from this BitBufferReader.
+     * This includes pad bits that have been skipped, but does not include
+     * bytes that have been taken from the buffer that have not yet been
+     * delivered as bits.
+     *
+     * @return The number of bits read so far.
+     */
+    public long nrBits() {
+        return this.nrBits;
+    }
+
+    /**
+     * Check that the rest of the block has been padded with zeroes.
+     *
+     * @param width
+     *            The size of the block to pad in bits.
+     *            This will typically be 8, 16, 32, 64, 128, 256, etc.
+     * @return true if the block was zero padded, or false if the the padding
+     *         contains any one bits.
+     * @throws IOException
+     */
+    public boolean pad(int width) throws IOException {
+        boolean result = true;
+        int gap = (int)this.nrBits % width;
+        if (gap < 0) {
+            gap += width;
+        }
+        if (gap != 0) {
+            int padding = width - gap;
+            while (padding > 0) {
+                int actual = Math.min(padding, 32);
+                if (read(actual) != 0) {
+                    result = false;
+                }
+                padding -= actual;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take bytes from the buffer until this.unread holds at least width bits,
+     * a word at a time while there are enough left.
+     *
+     * @param width
+     *            The number of bits needed. (1..32)
+     * @return true if there are enough bits, or false if the buffer has run
+     *         out.
+     */
+    private boolean fill(int width) {
+        if (this.buffer.remaining() >= 4) {
+            int word = this.buffer.getInt();
+            if (this.swap) {
+                word = Integer.reverseBytes(word);
+            }
+            this.unread = (this.unread << 32) | (word & 0xFFFFFFFFL);
+            this.available += 32;
+            return true;
+        }
+        while (this.available < width) {
+            if (!this.buffer.hasRemaining()) {
+                return false;
+            }
+            this.unread = (this.unread << 8) | (this.buffer.get() & 0xff);
+            this.available += 8;
+        }
+        return true;
+    }
+
+    /**
+     * Look at the next bits without reading them.
+     *
+     * @param width
+     *            The number of bits to look at. (1..24)
+     * @throws IOException
+     * @return the bits
+     */
+    public int peek(int width) throws IOException {
+        if (this.available < width && !fill(width)) {
+            return (int) (this.unread << (width - this.available))
+                    & ((1 << width) - 1);
+        }
+        return (int) (this.unread >>> (this.available - width))
+                & ((1 << width) - 1);
+    }
+
+    /**
+     * Read some bits.
+     *
+     * @param width
+     *            The number of bits to read. (0..32)
+     * @throws IOException
+     * @return the bits
+     */
+    public int read(int width) throws IOException {
+        if (width == 0) {
+            return 0;
+        }
+        if (width < 0 || width > 32) {
+            throw new IOException("Bad read width.");
+        }
+        if (this.available < width && !fill(width)) {
+            throw new IOException("Attempt to read past end.");
+        }
+        this.available -= width;
+        this.nrBits += width;
+        return (int) ((this.unread >>> this.available) & ((1L << width) - 1));
+    }
+}
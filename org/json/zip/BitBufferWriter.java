@@ -0,0 +1,166 @@
+package org.json.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ Copyright (c) 2013 JSON.org
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ The Software shall be used for Good, not Evil.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+/**
+ * This is a big endian bit writer that writes its bits straight into a
+ * ByteBuffer, from its position. Bits are gathered in a 64 bit accumulator
+ * and put into the buffer a word at a time, so the buffer may not hold the
+ * last few bytes until pad is called. If the buffer fills up, a
+ * BufferOverflowException is thrown.
+ *
+ * @version 2024-06-14
+ *
+ */
+public class BitBufferWriter implements BitWriter {
+
+    /**
+     * The number of bits written.
+     */
+    private long nrBits = 0;
+
+    /**
+     * The destination of the bits.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Whether words put into the buffer have to be byte swapped, because it
+     * is little endian.
+     */
+    private final boolean swap;
+
+    /**
+     * Holder of bits not yet written, in the low this.pending bits.
+     */
+    private long unwritten;
+
+    /**
+     * The number of bits in this.unwritten.
+     */
+    private int pending = 0;
+
+    /**
+     * Use a ByteBuffer to produce a BitWriter. The BitWriter will put its
+     * bits into the buffer a word at a time, and when it is padded.
+     *
+     * @param buffer
+     *            A ByteBuffer
+     */
+    public BitBufferWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.swap = buffer.order() != ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Returns the number of bits that have been written to this
+     * BitBufferWriter. This may include bits that have not yet been put into
+     * the buffer.
+     */
+    public long nrBits() {
+        return this.nrBits;
+    }
+
+    /**
+     * Write a 1 bit.
+     *
+     * @throws IOException
+     */
+    public void one() throws IOException {
+        write(1, 1);
+    }
+
+    /**
+     * Pad the rest of the block with zeros and flush. pad(8) puts the last
+     * unfinished byte into the buffer.
+     *
+     * @param width
+     *            The size of the block to pad in bits.
+     *            This will typically be 8, 16, 32, 64, 128, 256, etc.
+     * @throws IOException
+     */
+    public void pad(int width) throws IOException {
+        int gap = (int)this.nrBits % width;
+        if (gap < 0) {
+            gap += width;
+        }
+        if (gap != 0) {
+            int padding = width - gap;
+            while (padding > 0) {
+                int actual = Math.min(padding, 32);
+                write(0, actual);
+                padding -= actual;
+            }
+        }
+        while (this.pending >= 8) {
+            this.pending -= 8;
+            this.buffer.put((byte) (this.unwritten >>> this.pending));
+        }
+    }
+
+    /**
+     * Write some bits. Up to 32 bits can be written at a time.
+     *
+     * @param bits
+     *            The bits to be written.
+     * @param width
+     *            The number of bits to write. (0..32)
+     * @throws IOException
+     */
+    public void write(int bits, int width) throws IOException {
+        if (bits == 0 && width == 0) {
+            return;
+        }
+        if (width <= 0 || width > 32) {
+            throw new IOException("Bad write width.");
+        }
+        this.unwritten = (this.unwritten << width)
+                | (bits & ((1L << width) - 1));
+        this.pending += width;
+        this.nrBits += width;
+        if (this.pending >= 32) {
+            this.pending -= 32;
+            int word = (int) (this.unwritten >>> this.pending);
+            if (this.swap) {
+                word = Integer.reverseBytes(word);
+            }
+            this.buffer.putInt(word);
+        }
+    }
+
+    /**
+     * Write a 0 bit.
+     *
+     * @throws IOException
+     */
+    public void zero() throws IOException {
+        write(0, 1);
+
+    }
+}
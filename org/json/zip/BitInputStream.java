@@ -29,26 +29,46 @@ import java.io.InputStream;
 
 /**
  * This is a big endian bit reader. It reads its bits from an InputStream.
+ * The InputStream is read a block at a time into a buffer, and whole bytes
+ * are moved from the buffer to a 64 bit accumulator, so this may take more
+ * bytes from the InputStream than it has delivered as bits. The
+ * InputStream should hold nothing after the bits to be read.
  *
  * @version 2013-05-03
  *
  */
 public class BitInputStream implements BitReader {
     /**
-     * The number of bits remaining in the current byte.
+     * The number of bits taken from the InputStream but not yet read.
      */
     private int available = 0;
 
     /**
-     * Up to a byte's worth of unread bits.
+     * Bits taken from the InputStream but not yet read, in the low
+     * this.available bits.
      */
-    private int unread = 0;
+    private long unread = 0;
 
     /**
      * The source of the bits.
      */
     private InputStream in;
 
+    /**
+     * Bytes taken from the InputStream but not yet moved to this.unread.
+     */
+    private final byte[] buffer = new byte[512];
+
+    /**
+     * The position of the next byte in this.buffer.
+     */
+    private int position = 0;
+
+    /**
+     * The number of bytes in this.buffer.
+     */
+    private int limit = 0;
+
     /**
      * The number of bits read so far. This is used in padding.
      */
@@ -114,6 +134,53 @@ public class BitInputStream implements BitReader {
         return result;
     }
 
+    /**
+     * Move whole bytes to this.unread until it holds at least width bits,
+     * reading the InputStream if the buffer runs out.
+     *
+     * @param width
+     *            The number of bits needed. (1..32)
+     * @throws IOException
+     * @return true if there are enough bits, or false if the InputStream
+     *         has ended.
+     */
+    private boolean fill(int width) throws IOException {
+        while (this.available < width) {
+            if (this.position >= this.limit) {
+                int count = this.in.read(this.buffer, 0, this.buffer.length);
+                if (count < 0) {
+                    return false;
+                }
+                this.position = 0;
+                this.limit = count;
+            }
+            while (this.available <= 56 && this.position < this.limit) {
+                this.unread = (this.unread << 8)
+                        | (this.buffer[this.position] & 0xff);
+                this.position += 1;
+                this.available += 8;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Look at the next bits without reading them.
+     *
+     * @param width
+     *            The number of bits to look at. (1..24)
+     * @throws IOException
+     * @return the bits
+     */
+    public int peek(int width) throws IOException {
+        if (!fill(width)) {
+            return (int) (this.unread << (width - this.available))
+                    & ((1 << width) - 1);
+        }
+        return (int) (this.unread >>> (this.available - width))
+                & ((1 << width) - 1);
+    }
+
     /**
      * Read some bits.
      *
@@ -129,25 +196,11 @@ public class BitInputStream implements BitReader {
         if (width < 0 || width > 32) {
             throw new IOException("Bad read width.");
         }
-        int result = 0;
-        while (width > 0) {
-            if (this.available == 0) {
-                this.unread = this.in.read();
-                if (this.unread < 0) {
-                    throw new IOException("Attempt to read past end.");
-                }
-                this.available = 8;
-            }
-            int take = width;
-            if (take > this.available) {
-                take = this.available;
-            }
-            result |= ((this.unread >>> (this.available - take)) &
-                    ((1 << take) - 1)) << (width - take);
-            this.nrBits += take;
-            this.available -= take;
-            width -= take;
+        if (this.available < width && !fill(width)) {
+            throw new IOException("Attempt to read past end.");
         }
-        return result;
+        this.available -= width;
+        this.nrBits += width;
+        return (int) ((this.unread >>> this.available) & ((1L << width) - 1));
     }
 }
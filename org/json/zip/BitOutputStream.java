@@ -29,6 +29,9 @@ import java.io.OutputStream;
 
 /**
  * This is a big endian bit writer. It writes its bits to an OutputStream.
+ * Bits are gathered in a 64 bit accumulator and whole bytes are moved to a
+ * buffer, which is written to the OutputStream a block at a time, so the
+ * OutputStream may not see the bytes until pad is called.
  *
  * @version 2013-05-03
  *
@@ -46,18 +49,28 @@ public class BitOutputStream implements BitWriter {
     private OutputStream out;
 
     /**
-     * Holder of bits not yet written.
+     * Holder of bits not yet written, in the low this.pending bits.
      */
-    private int unwritten;
+    private long unwritten;
 
     /**
-     * The number of unused bits in this.unwritten.
+     * The number of bits in this.unwritten.
      */
-    private int vacant = 8;
+    private int pending = 0;
+
+    /**
+     * Whole bytes not yet written to the OutputStream.
+     */
+    private final byte[] buffer = new byte[512];
+
+    /**
+     * The number of bytes in this.buffer.
+     */
+    private int length = 0;
 
     /**
      * Use an OutputStream to produce a BitWriter. The BitWriter will send its
-     * bits to the OutputStream as each byte is filled.
+     * bits to the OutputStream a block at a time, and when it is padded.
      *
      * @param out
      *            An Output Stream
@@ -101,10 +114,15 @@ public class BitOutputStream implements BitWriter {
         if (gap != 0) {
             int padding = width - gap;
             while (padding > 0) {
-                this.zero();
-                padding -= 1;
+                int actual = Math.min(padding, 32);
+                write(0, actual);
+                padding -= actual;
             }
         }
+        if (this.length > 0) {
+            this.out.write(this.buffer, 0, this.length);
+            this.length = 0;
+        }
         this.out.flush();
     }
 
@@ -124,21 +142,21 @@ public class BitOutputStream implements BitWriter {
         if (width <= 0 || width > 32) {
             throw new IOException("Bad write width.");
         }
-        while (width > 0) {
-            int actual = width;
-            if (actual > this.vacant) {
-                actual = this.vacant;
-            }
-            this.unwritten |= ((bits >>> (width - actual)) &
-                    ((1 << actual) - 1)) << (this.vacant - actual);
-            width -= actual;
-            nrBits += actual;
-            this.vacant -= actual;
-            if (this.vacant == 0) {
-                this.out.write(this.unwritten);
-                this.unwritten = 0;
-                this.vacant = 8;
+        this.unwritten = (this.unwritten << width)
+                | (bits & ((1L << width) - 1));
+        this.pending += width;
+        this.nrBits += width;
+        if (this.pending >= 8) {
+            if (this.length > this.buffer.length - 8) {
+                this.out.write(this.buffer, 0, this.length);
+                this.length = 0;
             }
+            do {
+                this.pending -= 8;
+                this.buffer[this.length] =
+                        (byte) (this.unwritten >>> this.pending);
+                this.length += 1;
+            } while (this.pending >= 8);
         }
     }
 
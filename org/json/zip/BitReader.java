@@ -39,4 +39,19 @@ public interface BitReader {
      * @return the bits
      */
     public int read(int width) throws IOException;
+
+    /**
+     * Look at the next bits without reading them, if this bitreader can.
+     * Bits past the end of the input are zeros. A bitreader that can look
+     * ahead lets Huffman codes be decoded with lookup tables rather than bit
+     * by bit.
+     *
+     * @param width
+     *            The number of bits to look at. (1..24)
+     * @throws IOException
+     * @return the bits, or -1 if this bitreader can't look ahead
+     */
+    public default int peek(int width) throws IOException {
+        return -1;
+    }
 }
@@ -45,6 +45,13 @@ import org.json.JSONException;
  *
  * After a million ticks, it is assumed that the distribution is well
  * understood and that no more regeneration will be required.
+ *
+ * Each time the table is regenerated, it is turned into lookup tables the
+ * first time it is used: the bit sequence for each symbol, so it can be
+ * written in one go, and a decoding table indexed by the next 9 bits of
+ * input, with subtables for longer codes, so that symbols can be read
+ * without walking the tree a bit at a time. The bits are the same either
+ * way.
  */
 public class Huff implements None, PostMortem {
 
@@ -83,6 +90,60 @@ public class Huff implements None, PostMortem {
      */
     private int width;
 
+    /**
+     * The number of bits looked up by the top level decoding table.
+     */
+    private static final int rootBits = 9;
+
+    /**
+     * The number of bits looked up by decoding subtables.
+     */
+    private static final int subBits = 6;
+
+    /**
+     * The longest code that is written as a single bit field. Longer codes
+     * are written a bit at a time.
+     */
+    private static final int maxCodeWidth = 24;
+
+    /**
+     * The bit sequence of each symbol, for writing, or null if the lookup
+     * tables need to be built.
+     */
+    private int[] codes;
+
+    /**
+     * The number of bits in the bit sequence of each symbol, or 0 if it is
+     * too long to write in one go.
+     */
+    private int[] codeWidths;
+
+    /**
+     * The top level decoding table.
+     */
+    private Table decoder;
+
+    /**
+     * A decoding table for the part of the tree below a link symbol. It is
+     * indexed by the next bits of input. Each entry is either a symbol
+     * integer shifted left 5 bits, combined with the number of bits of the
+     * index that belong to its code, or if the code is longer than the index,
+     * the negative of one more than the index of a subtable.
+     */
+    private static class Table {
+        public final Symbol node;
+        public final int bits;
+        public final int[] entries;
+        public Table[] subtables;
+
+        public Table(Symbol node, int bits) {
+            this.node = node;
+            this.bits = bits;
+            this.entries = new int[1 << bits];
+            this.subtables = null;
+        }
+    }
+
     private static class Symbol implements PostMortem {
         public Symbol back;
         public Symbol next;
@@ -259,6 +320,73 @@ public class Huff implements None, PostMortem {
 
             this.table = symbol;
             this.upToDate = true;
+
+// The lookup tables are built when next needed.
+
+            this.codes = null;
+            this.decoder = null;
+        }
+    }
+
+    /**
+     * Build the lookup tables from the table binary tree.
+     */
+    private void buildLookup() {
+        this.codes = new int[this.domain];
+        this.codeWidths = new int[this.domain];
+        assignCodes(this.table, 0, 0);
+        this.decoder = buildTable(this.table, rootBits);
+    }
+
+    private void assignCodes(Symbol symbol, int code, int width) {
+        if (symbol.integer != none) {
+            if (width <= maxCodeWidth) {
+                this.codes[symbol.integer] = code;
+                this.codeWidths[symbol.integer] = width;
+            }
+            return;
+        }
+        assignCodes(symbol.zero, code << 1, width + 1);
+        assignCodes(symbol.one, (code << 1) | 1, width + 1);
+    }
+
+    /**
+     * The number of bits in the longest code below a symbol.
+     */
+    private static int height(Symbol symbol) {
+        if (symbol.integer != none) {
+            return 0;
+        }
+        return 1 + Math.max(height(symbol.zero), height(symbol.one));
+    }
+
+    private static Table buildTable(Symbol node, int bits) {
+        Table table = new Table(node, Math.min(bits, height(node)));
+        fillTable(table, node, 0, 0);
+        return table;
+    }
+
+    private static void fillTable(Table table, Symbol symbol, int depth,
+            int prefix) {
+        if (symbol.integer != none) {
+            int span = 1 << (table.bits - depth);
+            int start = prefix << (table.bits - depth);
+            int entry = (symbol.integer << 5) | depth;
+            for (int i = 0; i < span; i += 1) {
+                table.entries[start + i] = entry;
+            }
+        } else if (depth == table.bits) {
+            Table[] subtables = table.subtables;
+            int index = subtables == null ? 0 : subtables.length;
+            table.subtables = new Table[index + 1];
+            if (subtables != null) {
+                System.arraycopy(subtables, 0, table.subtables, 0, index);
+            }
+            table.subtables[index] = buildTable(symbol, subBits);
+            table.entries[prefix] = -1 - index;
+        } else {
+            fillTable(table, symbol.zero, depth + 1, prefix << 1);
+            fillTable(table, symbol.one, depth + 1, (prefix << 1) | 1);
         }
     }
 
@@ -326,16 +454,42 @@ public class Huff implements None, PostMortem {
     public int read(BitReader bitreader) throws JSONException {
         try {
             this.width = 0;
-            Symbol symbol = this.table;
-            while (symbol.integer == none) {
-                this.width += 1;
-                symbol = bitreader.bit() ? symbol.one : symbol.zero;
+            if (this.decoder == null) {
+                buildLookup();
+            }
+            Table table = this.decoder;
+            int integer;
+            while (true) {
+                int peeked = bitreader.peek(table.bits);
+                if (peeked < 0) {
+
+// The bitreader can't look ahead, so walk the tree a bit at a time.
+
+                    Symbol symbol = table.node;
+                    while (symbol.integer == none) {
+                        this.width += 1;
+                        symbol = bitreader.bit() ? symbol.one : symbol.zero;
+                    }
+                    integer = symbol.integer;
+                    break;
+                }
+                int entry = table.entries[peeked];
+                if (entry >= 0) {
+                    int width = entry & 31;
+                    bitreader.read(width);
+                    this.width += width;
+                    integer = entry >>> 5;
+                    break;
+                }
+                bitreader.read(table.bits);
+                this.width += table.bits;
+                table = table.subtables[-1 - entry];
             }
-            tick(symbol.integer);
+            tick(integer);
             if (JSONzip.probe) {
-                JSONzip.logchar(symbol.integer, this.width);
+                JSONzip.logchar(integer, this.width);
             }
-            return symbol.integer;
+            return integer;
         } catch (Throwable e) {
             throw new JSONException(e);
         }
@@ -395,7 +549,20 @@ public class Huff implements None, PostMortem {
      */
     public void write(int value, BitWriter bitwriter) throws JSONException {
         this.width = 0;
-        write(this.symbols[value], bitwriter);
+        if (this.codes == null) {
+            buildLookup();
+        }
+        int width = this.codeWidths[value];
+        if (width > 0) {
+            try {
+                bitwriter.write(this.codes[value], width);
+            } catch (Throwable e) {
+                throw new JSONException(e);
+            }
+            this.width = width;
+        } else {
+            write(this.symbols[value], bitwriter);
+        }
         tick(value);
         if (JSONzip.probe) {
             JSONzip.logchar(value, this.width);
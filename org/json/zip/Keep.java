@@ -1,6 +1,6 @@
 package org.json.zip;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 import org.json.Kim;
 
@@ -31,6 +31,11 @@ import org.json.Kim;
 /**
  * A keep is a data structure that associates strings (or substrings) with
  * numbers. This allows the sending of small integers instead of strings.
+ * <p>
+ * Values are found with an open addressing table of primitive ints, indexed
+ * by the values' hash codes, so nothing is boxed when a value is registered or
+ * found. The table grows with the keep, and is rebuilt in the same pass that
+ * compacts it.
  *
  * @author JSON.org
  * @version 2013-05-03
@@ -39,7 +44,9 @@ class Keep implements None, PostMortem {
     private int capacity;
     protected int length;
     private Object[] list;
-    private HashMap<Object, Integer> map;
+    private int[] hashes;
+    private int[] slots;
+    private int mask;
     private int power;
     private long[] ticks;
 
@@ -49,7 +56,9 @@ class Keep implements None, PostMortem {
         this.power = 0;
         this.ticks = new long[this.capacity];
         this.list = new Object[this.capacity];
-        this.map = new HashMap<Object, Integer>(this.capacity);
+        this.hashes = new int[Math.min(this.capacity, 16)];
+        this.slots = new int[this.hashes.length * 2];
+        this.mask = this.slots.length - 1;
    }
 
     /**
@@ -90,28 +99,79 @@ class Keep implements None, PostMortem {
     private void compact() {
         int from = 0;
         int to = 0;
+        Arrays.fill(this.slots, 0);
         while (from < this.capacity) {
             Object key = this.list[from];
             long usage = age(this.ticks[from]);
             if (usage > 0) {
                 this.ticks[to] = usage;
                 this.list[to] = key;
-                this.map.put(key, to);
+                this.hashes[to] = this.hashes[from];
+                index(to);
                 to += 1;
-            } else {
-                this.map.remove(key);
             }
             from += 1;
         }
         if (to < this.capacity) {
             this.length = to;
         } else {
-            this.map.clear();
+            Arrays.fill(this.slots, 0);
             this.length = 0;
         }
+        Arrays.fill(this.list, this.length, this.capacity, null);
         this.power = 0;
     }
 
+    /**
+     * Spread the bits of a hash code, so that the low bits used to pick a
+     * slot depend on all of them.
+     *
+     * @param key
+     *            An object.
+     * @return A hash of the object.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Double the room for hash codes, and the table of slots with it, so that
+     * the table is never more than half full.
+     */
+    private void grow() {
+        this.hashes = Arrays.copyOf(this.hashes,
+                Math.min(this.capacity, this.hashes.length * 2));
+        this.slots = new int[this.hashes.length * 2];
+        this.mask = this.slots.length - 1;
+        for (int integer = 0; integer < this.length; integer += 1) {
+            index(integer);
+        }
+    }
+
+    /**
+     * Put an item of the keep into the table of slots. Each slot holds one
+     * more than the integer of an item, so that zero means empty. If an equal
+     * value is already in the table, its slot is given to the new item.
+     *
+     * @param integer
+     *            The number of an item in the keep.
+     */
+    private void index(int integer) {
+        int hash = this.hashes[integer];
+        Object key = this.list[integer];
+        int slot = hash & this.mask;
+        while (true) {
+            int found = this.slots[slot] - 1;
+            if (found < 0 || (this.hashes[found] == hash
+                    && key.equals(this.list[found]))) {
+                this.slots[slot] = integer + 1;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
     /**
      * Find the integer value associated with this key, or nothing if this key
      * is not in the keep.
@@ -121,8 +181,18 @@ class Keep implements None, PostMortem {
      * @return An integer
      */
     public int find(Object key) {
-        Object o = this.map.get(key);
-        return o instanceof Integer ? ((Integer) o).intValue() : none;
+        int hash = hash(key);
+        int slot = hash & this.mask;
+        while (true) {
+            int found = this.slots[slot] - 1;
+            if (found < 0) {
+                return none;
+            }
+            if (this.hashes[found] == hash && key.equals(this.list[found])) {
+                return found;
+            }
+            slot = (slot + 1) & this.mask;
+        }
     }
 
     public boolean postMortem(PostMortem pm) {
@@ -171,8 +241,12 @@ class Keep implements None, PostMortem {
         if (this.length >= this.capacity) {
             compact();
         }
+        if (this.length >= this.hashes.length) {
+            grow();
+        }
         this.list[this.length] = value;
-        this.map.put(value, this.length);
+        this.hashes[this.length] = hash(value);
+        index(this.length);
         this.ticks[this.length] = 1;
         if (JSONzip.probe) {
             JSONzip.log("<" + this.length + " " + value + "> ");
@@ -43,6 +43,12 @@ public class Unzipper extends JSONzip {
      */
     BitReader bitreader;
 
+    /**
+     * The buffer that the bytes of a string are read into, before they are
+     * copied into a kim.
+     */
+    private byte[] readbuffer = new byte[256];
+
     /**
      * Create a new unzipper. It may be used for an entire session or
      * subsession.
@@ -151,8 +157,8 @@ public class Unzipper extends JSONzip {
     private String read(Huff huff, Huff ext, Keep keep) throws JSONException {
         Kim kim;
         int at = 0;
-        int allocation = 256;
-        byte[] bytes = new byte[allocation];
+        byte[] bytes = this.readbuffer;
+        int allocation = bytes.length;
         if (bit()) {
             return getAndTick(keep, this.bitreader).toString();
         }
@@ -160,6 +166,7 @@ public class Unzipper extends JSONzip {
             if (at >= allocation) {
                 allocation *= 2;
                 bytes = java.util.Arrays.copyOf(bytes, allocation);
+                this.readbuffer = bytes;
             }
             int c = huff.read(this.bitreader);
             if (c == end) {